@@ -0,0 +1,95 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A whole stroke through canvasDrawing: ink, recognition and the resulting
+ * canvas action, on a panel that is never shown.
+ *
+ * @author jakob
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class CanvasDrawingBenchmark {
+    @Param({"line", "rect", "scribble", "long"})
+    public String shape;
+    
+    @Param({"combinators", "compiled", "templates"})
+    public String vocabulary;
+    
+    private Strokes strokes;
+    private MatcherFactory[] factories;
+    private Matcher matcher;
+    
+    @Setup
+    public void setup() {
+        Strokes.silenceStdout();
+        strokes = Strokes.named(shape);
+        switch(vocabulary) {
+            case "compiled":
+                factories = new MatcherFactory[] {Matchers::compiledRectCanvasActionMatcher, Matchers::compiledLineCanvasActionMatcher};
+                break;
+            case "templates":
+                factories = new MatcherFactory[] {Matchers::templateCanvasActionMatcher};
+                break;
+            default:
+                factories = new MatcherFactory[] {Matchers::rectCanvasActionMatcher, Matchers::lineCanvasActionMatcher};
+        }
+    }
+    
+    // A fresh canvas per stroke so recognized shapes do not pile up
+    @Setup(Level.Invocation)
+    public void canvas() {
+        matcher = Matchers.canvasDrawing(new CanvasPanel(), (x, y) -> {
+            Matcher[] alternatives = new Matcher[factories.length];
+            for(int i = 0; i < factories.length; i++) {
+                alternatives[i] = factories[i].fromLocation(x, y);
+            }
+            return Matchers.alt(alternatives);
+        });
+    }
+    
+    @Benchmark
+    public Object stroke() throws InterruptedException {
+        return matcher.match(strokes.events());
+    }
+}
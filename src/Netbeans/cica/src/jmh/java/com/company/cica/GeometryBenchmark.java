@@ -0,0 +1,84 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The directions of the segments of a stroke, through Geometry and through
+ * Math.atan2 as the matchers used to compute them.
+ *
+ * @author jakob
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GeometryBenchmark {
+    @Param({"scribble", "long"})
+    public String shape;
+    
+    private Strokes strokes;
+    private double[] directions;
+    
+    @Setup
+    public void setup() {
+        strokes = Strokes.named(shape);
+        directions = new double[strokes.size() - 1];
+    }
+    
+    @Benchmark
+    public double[] directions() {
+        Geometry.directions(strokes.xs, strokes.ys, 0, directions.length, directions);
+        return directions;
+    }
+    
+    @Benchmark
+    public double[] atan2() {
+        int[] xs = strokes.xs;
+        int[] ys = strokes.ys;
+        for(int i = 0; i < directions.length; i++) {
+            directions[i] = Math.toDegrees(Math.atan2(ys[i + 1] - ys[i], xs[i + 1] - xs[i]));
+        }
+        return directions;
+    }
+    
+    @Benchmark
+    public Segments segments() {
+        return Segments.of(strokes.xs, strokes.ys, strokes.size());
+    }
+}
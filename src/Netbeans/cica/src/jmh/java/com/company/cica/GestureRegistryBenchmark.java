@@ -0,0 +1,104 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Recognizing one stroke against a vocabulary of growing size, through a
+ * {@link GestureRegistry} and by trying every gesture in turn. Rectangles and
+ * lines come last, after gestures that start in other parts of the canvas or
+ * have more corners.
+ *
+ * @author jakob
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GestureRegistryBenchmark {
+    @Param({"line", "rect", "scribble"})
+    public String shape;
+    
+    @Param({"2", "50"})
+    public int gestures;
+    
+    private Strokes strokes;
+    private MatcherFactory registry;
+    private MatcherFactory[] vocabulary;
+    
+    @Setup
+    public void setup() {
+        strokes = Strokes.named(shape);
+        
+        GestureRegistry.Builder builder = GestureRegistry.builder();
+        vocabulary = new MatcherFactory[gestures];
+        for(int i = 0; i < gestures - 2; i++) {
+            int corners = 4 + i % 12;
+            MatcherFactory factory = (x, y) -> Matchers.templateCanvasActionMatcher(x, y);
+            builder.gesture("gesture" + i, factory).startingIn(i % 8 * 80, i / 8 * 80, 80, 80).corners(corners, corners);
+            vocabulary[i] = factory;
+        }
+        
+        MatcherFactory rect = (x, y) -> Matchers.compiledRectCanvasActionMatcher(x, y);
+        MatcherFactory line = (x, y) -> Matchers.compiledLineCanvasActionMatcher(x, y);
+        registry = builder
+            .gesture("rect", rect).corners(2, 6).minLength(40)
+            .gesture("line", line).corners(0, 1)
+            .build();
+        vocabulary[gestures - 2] = rect;
+        vocabulary[gestures - 1] = line;
+    }
+    
+    private PenInput stroke() {
+        return PenInputs.toRecoverable(PenInputs.stroke(strokes.moves(), (x, y) -> {}));
+    }
+    
+    @Benchmark
+    public Object registry() throws InterruptedException {
+        return registry.fromLocation(strokes.xs[0], strokes.ys[0]).match(stroke());
+    }
+    
+    @Benchmark
+    public Object alt() throws InterruptedException {
+        Matcher[] alternatives = new Matcher[vocabulary.length];
+        for(int i = 0; i < vocabulary.length; i++) {
+            alternatives[i] = vocabulary[i].fromLocation(strokes.xs[0], strokes.ys[0]);
+        }
+        return Matchers.alt(alternatives).match(stroke());
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Cost of reading a stroke through the recoverable inputs, boxed, packed
+ * and a batch at a time.
+ * The events counter reports events per second.
+ *
+ * @author jakob
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class InputsBenchmark {
+    @Param({"line", "rect", "scribble", "long"})
+    public String shape;
+    
+    private Strokes strokes;
+    private Object[] events;
+    
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long events;
+        
+        @Setup(Level.Iteration)
+        public void clean() {
+            events = 0;
+        }
+    }
+    
+    @Setup
+    public void setup() {
+        strokes = Strokes.named(shape);
+        events = strokes.eventObjects();
+    }
+    
+    @Benchmark
+    public void objectRecoverable(Counters counters, Blackhole blackhole) {
+        int[] next = new int[1];
+        Input input = Inputs.toRecoverable(Inputs.fromProvider(() -> events[next[0]++], e -> e instanceof Main.PenUpEvent));
+        
+        while(!input.atEnd()) {
+            Main.PenMovedToEvent event = (Main.PenMovedToEvent) input.take();
+            blackhole.consume(event.x);
+            blackhole.consume(event.y);
+            counters.events++;
+        }
+    }
+    
+    @Benchmark
+    public void penRecoverable(Counters counters, Blackhole blackhole) {
+        PenInput input = PenInputs.toRecoverable(PenInputs.stroke(strokes.moves(), (x, y) -> {}));
+        
+        while(!input.atEnd()) {
+            blackhole.consume(input.peekX());
+            blackhole.consume(input.peekY());
+            input.skip();
+            counters.events++;
+        }
+    }
+    
+    @Benchmark
+    public void penBatched(Counters counters, Blackhole blackhole) {
+        PenInput input = PenInputs.toRecoverable(PenInputs.stroke(strokes.moves(), (x, y) -> {}));
+        PenBatch batch = new PenBatch(64);
+        int count;
+        
+        while((count = input.fill(batch)) > 0) {
+            for(int i = 0; i < count; i++) {
+                blackhole.consume(batch.x(i));
+                blackhole.consume(batch.y(i));
+            }
+            input.skip(count);
+            counters.events += count;
+        }
+    }
+    
+    @Benchmark
+    public void penRecoverableBacktracking(Counters counters, Blackhole blackhole) {
+        RecoverablePenInput input = PenInputs.toRecoverable(PenInputs.stroke(strokes.moves(), (x, y) -> {}));
+        
+        while(!input.atEnd()) {
+            int mark = input.mark();
+            for(int i = 0; i < 8 && !input.atEnd(); i++) {
+                input.skip();
+            }
+            input.reset(mark);
+            input.release(mark);
+            
+            blackhole.consume(input.peekX());
+            input.skip();
+            counters.events++;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Latency of recognizing one stroke; sample mode reports percentiles.
+ *
+ * @author jakob
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MatchersBenchmark {
+    @Param({"line", "rect", "scribble", "long"})
+    public String shape;
+    
+    private Strokes strokes;
+    
+    @Setup
+    public void setup() {
+        Strokes.silenceStdout();
+        strokes = Strokes.named(shape);
+    }
+    
+    private PenInput stroke() {
+        return PenInputs.toRecoverable(PenInputs.stroke(strokes.moves(), (x, y) -> {}));
+    }
+    
+    @Benchmark
+    public Object lineStrategy() throws InterruptedException {
+        return Matchers.lineStrategy(strokes.xs[0], strokes.ys[0]).match(stroke());
+    }
+    
+    @Benchmark
+    public Object rectStrategy() throws InterruptedException {
+        return Matchers.rectStrategy(strokes.xs[0], strokes.ys[0]).match(stroke());
+    }
+    
+    @Benchmark
+    public Object compiledLine() throws InterruptedException {
+        return Matchers.compiledLineCanvasActionMatcher(strokes.xs[0], strokes.ys[0]).match(stroke());
+    }
+    
+    @Benchmark
+    public Object compiledRect() throws InterruptedException {
+        return Matchers.compiledRectCanvasActionMatcher(strokes.xs[0], strokes.ys[0]).match(stroke());
+    }
+    
+    @Benchmark
+    public Object shapes() throws InterruptedException {
+        return Matchers.shapeCanvasActionMatcher(strokes.xs[0], strokes.ys[0]).match(stroke());
+    }
+    
+    @Benchmark
+    public Object template() throws InterruptedException {
+        return Matchers.templateCanvasActionMatcher(strokes.xs[0], strokes.ys[0]).match(stroke());
+    }
+    
+    @Benchmark
+    public Object packrat() throws InterruptedException {
+        return Matchers.packratCanvasActionMatcher(strokes.xs[0], strokes.ys[0]).match(stroke());
+    }
+}
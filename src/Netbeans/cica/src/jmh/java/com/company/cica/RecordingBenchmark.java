@@ -0,0 +1,146 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Replaying a recording of a thousand strokes, decoded only and through the
+ * compiled matchers. The events counter reports events per second.
+ *
+ * @author jakob
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RecordingBenchmark {
+    private static final int STROKES = 1000;
+    
+    @Param({"line", "rect", "scribble"})
+    public String shape;
+    
+    private Path recording;
+    
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long events;
+        
+        @Setup(Level.Iteration)
+        public void clean() {
+            events = 0;
+        }
+    }
+    
+    @Setup
+    public void setup() throws IOException {
+        Strokes.silenceStdout();
+        Strokes strokes = Strokes.named(shape);
+        recording = Files.createTempFile("strokes", ".pen");
+        
+        PenRecording.Encoder encoder = new PenRecording.Encoder();
+        ByteBuffer out = ByteBuffer.allocate(STROKES * (strokes.size() + 1) * PenRecording.MAX_EVENT_SIZE + 16);
+        encoder.header(out);
+        long time = 0;
+        for(int i = 0; i < STROKES; i++) {
+            encoder.encode(out, 0, PenEvents.DOWN, strokes.xs[0], strokes.ys[0], time);
+            for(int j = 1; j < strokes.size(); j++) {
+                encoder.encode(out, 0, PenEvents.MOVED, strokes.xs[j], strokes.ys[j], time += 8);
+            }
+            encoder.encode(out, 0, PenEvents.UP, strokes.xs[strokes.size() - 1], strokes.ys[strokes.size() - 1], time += 8);
+        }
+        out.flip();
+        
+        try(FileChannel channel = FileChannel.open(recording, StandardOpenOption.WRITE)) {
+            while(out.hasRemaining()) {
+                channel.write(out);
+            }
+        }
+    }
+    
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(recording);
+    }
+    
+    @Benchmark
+    public void decode(Counters counters, Blackhole blackhole) throws IOException {
+        try(PenRecording.Replay replay = PenRecording.replay(recording)) {
+            while(!replay.atEnd()) {
+                blackhole.consume(replay.peekX());
+                blackhole.consume(replay.peekY());
+                replay.skip();
+                counters.events++;
+            }
+        }
+    }
+    
+    @Benchmark
+    public void recognize(Counters counters, Blackhole blackhole) throws IOException, InterruptedException {
+        try(PenRecording.Replay replay = PenRecording.replay(recording)) {
+            while(!replay.atEnd()) {
+                if(replay.peekKind() != PenEvents.DOWN) {
+                    replay.skip();
+                    continue;
+                }
+                
+                int x = replay.peekX();
+                int y = replay.peekY();
+                replay.skip();
+                PenInput stroke = PenInputs.toRecoverable(PenInputs.stroke(replay, (mx, my) -> counters.events++));
+                blackhole.consume(Matchers.alt(
+                    Matchers.compiledRectCanvasActionMatcher(x, y),
+                    Matchers.compiledLineCanvasActionMatcher(x, y)
+                ).match(stroke));
+                while(!stroke.atEnd()) {
+                    stroke.skip();
+                }
+            }
+        }
+    }
+}
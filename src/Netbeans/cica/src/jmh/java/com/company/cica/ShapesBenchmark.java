@@ -0,0 +1,92 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Recognizing one stroke against a growing number of shapes, read off one
+ * {@link SegmentGraph} shared by all of them and by a matcher per shape that
+ * builds its own. Polygons with more sides than the stroke come first, so
+ * every shape is tried.
+ *
+ * @author jakob
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ShapesBenchmark {
+    @Param({"rect", "scribble"})
+    public String shape;
+    
+    @Param({"1", "4", "16"})
+    public int shapes;
+    
+    private Strokes strokes;
+    private Shapes.Shape[] library;
+    
+    @Setup
+    public void setup() {
+        strokes = Strokes.named(shape);
+        
+        library = new Shapes.Shape[shapes];
+        for(int i = 0; i < shapes - 1; i++) {
+            library[i] = Shapes.polygon(5 + i, (xs, ys) -> xs);
+        }
+        library[shapes - 1] = Shapes.rectangle((xs, ys) -> xs);
+    }
+    
+    private PenInput stroke() {
+        return PenInputs.toRecoverable(PenInputs.stroke(strokes.moves(), (x, y) -> {}));
+    }
+    
+    @Benchmark
+    public Object sharedGraph() throws InterruptedException {
+        return Shapes.matcher(strokes.xs[0], strokes.ys[0], library).match(stroke());
+    }
+    
+    @Benchmark
+    public Object graphPerShape() throws InterruptedException {
+        Matcher[] alternatives = new Matcher[library.length];
+        for(int i = 0; i < library.length; i++) {
+            alternatives[i] = Shapes.matcher(strokes.xs[0], strokes.ys[0], library[i]);
+        }
+        
+        return Matchers.alt(alternatives).match(stroke());
+    }
+}
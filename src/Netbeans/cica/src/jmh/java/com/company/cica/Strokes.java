@@ -0,0 +1,227 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Synthetic strokes for the benchmarks. A stroke is the pen down position
+ * followed by its moves, as parallel coordinate arrays.
+ *
+ * @author jakob
+ */
+public class Strokes {
+    public final int[] xs;
+    public final int[] ys;
+
+    private Strokes(int[] xs, int[] ys) {
+        this.xs = xs;
+        this.ys = ys;
+    }
+    
+    public int size() {
+        return xs.length;
+    }
+    
+    public static Strokes named(String name) {
+        switch(name) {
+            case "line":
+                return polyline(1.0, 0, new int[] {20, 20, 320, 120});
+            case "rect":
+                return polyline(1.0, 0, new int[] {20, 20, 220, 20, 220, 170, 20, 170, 20, 20});
+            case "scribble":
+                return scribble(2000, 42);
+            case "long":
+                return polyline(0.25, 0.5, new int[] {20, 20, 620, 20, 620, 460, 20, 460, 20, 40, 600, 40});
+        }
+        
+        throw new IllegalArgumentException(name);
+    }
+    
+    /**
+     * Points spaced step px apart along the given corners, with gaussian noise.
+     */
+    public static Strokes polyline(double step, double noise, int[] corners) {
+        Random random = new Random(7);
+        int[] xs = new int[16];
+        int[] ys = new int[16];
+        int count = 0;
+        
+        for(int c = 0; c + 3 < corners.length; c += 2) {
+            double dx = corners[c + 2] - corners[c];
+            double dy = corners[c + 3] - corners[c + 1];
+            double length = Math.hypot(dx, dy);
+            
+            for(double t = 0; t < length; t += step) {
+                if(count == xs.length) {
+                    xs = Arrays.copyOf(xs, count * 2);
+                    ys = Arrays.copyOf(ys, count * 2);
+                }
+                xs[count] = (int)Math.round(corners[c] + dx * t / length + random.nextGaussian() * noise);
+                ys[count] = (int)Math.round(corners[c + 1] + dy * t / length + random.nextGaussian() * noise);
+                count++;
+            }
+        }
+        
+        xs = Arrays.copyOf(xs, count + 1);
+        ys = Arrays.copyOf(ys, count + 1);
+        xs[count] = corners[corners.length - 2];
+        ys[count] = corners[corners.length - 1];
+        
+        return new Strokes(xs, ys);
+    }
+    
+    public static Strokes scribble(int points, long seed) {
+        Random random = new Random(seed);
+        int[] xs = new int[points];
+        int[] ys = new int[points];
+        double x = 300;
+        double y = 200;
+        double heading = 0;
+        
+        for(int i = 0; i < points; i++) {
+            heading += random.nextGaussian() * 0.3;
+            x += Math.cos(heading) * 2 + random.nextGaussian();
+            y += Math.sin(heading) * 2 + random.nextGaussian();
+            xs[i] = (int)Math.round(x);
+            ys[i] = (int)Math.round(y);
+        }
+        
+        return new Strokes(xs, ys);
+    }
+    
+    /**
+     * The moves of the stroke followed by a pen up, as read after the pen
+     * down.
+     */
+    public PenInput moves() {
+        return new ArrayPenInput(xs, ys, false);
+    }
+    
+    /**
+     * The whole stroke, pen down and pen up included.
+     */
+    public PenInput events() {
+        return new ArrayPenInput(xs, ys, true);
+    }
+    
+    public Object[] eventObjects() {
+        Object[] events = new Object[xs.length];
+        for(int i = 1; i < xs.length; i++) {
+            events[i - 1] = new Main.PenMovedToEvent(xs[i], ys[i]);
+        }
+        events[xs.length - 1] = new Main.PenUpEvent();
+        return events;
+    }
+    
+    /**
+     * Keeps any console output out of the results.
+     */
+    public static void silenceStdout() {
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        }));
+    }
+    
+    private static class ArrayPenInput implements PenInput {
+        private final int[] xs;
+        private final int[] ys;
+        private final int first;
+        private int position;
+
+        ArrayPenInput(int[] xs, int[] ys, boolean withDown) {
+            this.xs = xs;
+            this.ys = ys;
+            first = withDown ? 0 : 1;
+            position = first;
+        }
+
+        @Override
+        public int peekKind() {
+            if(position == xs.length) {
+                return PenEvents.UP;
+            }
+            
+            return position == 0 ? PenEvents.DOWN : PenEvents.MOVED;
+        }
+
+        @Override
+        public int peekX() {
+            return position == xs.length ? xs[xs.length - 1] : xs[position];
+        }
+
+        @Override
+        public int peekY() {
+            return position == ys.length ? ys[ys.length - 1] : ys[position];
+        }
+
+        @Override
+        public long peekTime() {
+            return position;
+        }
+
+        @Override
+        public void skip() {
+            if(position <= xs.length) {
+                position++;
+            }
+        }
+
+        @Override
+        public boolean atEnd() {
+            return position > xs.length;
+        }
+
+        @Override
+        public int fill(PenBatch batch) {
+            batch.clear();
+            
+            int start = position;
+            while(batch.size() < batch.capacity() && !atEnd()) {
+                batch.add(peekKind(), 0, peekX(), peekY(), peekTime());
+                position++;
+            }
+            position = start;
+            
+            return batch.size();
+        }
+
+        @Override
+        public void skip(int count) {
+            position = Math.min(position + count, xs.length + 1);
+        }
+
+        @Override
+        public InputState getState() {
+            int savedPosition = position;
+            
+            return () -> position = savedPosition;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Scoring one stroke against template libraries of growing size. The
+ * libraries are scribbles with a rectangle last, so the early abandon has to
+ * work through the whole library.
+ *
+ * @author jakob
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TemplateRecognizerBenchmark {
+    @Param({"rect", "scribble"})
+    public String shape;
+    
+    @Param({"3", "100", "500"})
+    public int templates;
+    
+    private Strokes strokes;
+    private TemplateRecognizer recognizer;
+    
+    @Setup
+    public void setup() {
+        strokes = Strokes.named(shape);
+        
+        TemplateRecognizer.Builder builder = TemplateRecognizer.builder();
+        for(int i = 1; i < templates; i++) {
+            Strokes template = Strokes.scribble(32, i);
+            builder.template(template.xs, template.ys, (xs, ys) -> null);
+        }
+        builder.template(new int[] {0, 100, 100, 0, 0}, new int[] {0, 0, 100, 100, 0}, (xs, ys) -> null);
+        recognizer = builder.build();
+    }
+    
+    @Benchmark
+    public int recognize() {
+        return recognizer.recognize(strokes.xs, strokes.ys, strokes.size());
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+/**
+ * Lets a match be called off from the outside, either explicitly or when a
+ * deadline passes. Matchers see it through {@link Input#getCancellation()}
+ * and call {@link #throwIfCancelled()} where they may spend a while: the
+ * recoverable inputs when pulling events or backtracking, the combinators
+ * between alternatives. An interrupted thread counts as cancelled too.
+ * 
+ * The clock is only read every so many checks, so a deadline may be
+ * overshot by the work of that many checks. An idle budget is a deadline
+ * that moves ahead whenever the matched input makes {@link #progressed()
+ * progress}; the progress is only looked at when the clock is read, so
+ * making it costs no more than an increment.
+ *
+ * @author jakob
+ */
+public class Cancellation {
+    /**
+     * Never cancelled by itself, though interrupting the thread still counts.
+     */
+    public static final Cancellation NONE = new Cancellation() {
+        @Override
+        public void cancel() {
+            throw new UnsupportedOperationException("Cannot cancel Cancellation.NONE.");
+        }
+
+        @Override
+        public void setDeadline(long deadline) {
+            throw new UnsupportedOperationException("Cannot set a deadline on Cancellation.NONE.");
+        }
+    };
+    
+    private static final int CHECKS_PER_CLOCK_READ = 64;
+    
+    private volatile boolean cancelled;
+    private volatile boolean hasDeadline;
+    private volatile long deadline;
+    private volatile long idleBudget;
+    // Like untilClockRead
+    private long progress;
+    private long progressAtClockRead;
+    // Racy when checked from several threads, which only moves the clock
+    // read a bit
+    private int untilClockRead;
+    
+    public void cancel() {
+        cancelled = true;
+    }
+    
+    /**
+     * @param deadline in terms of {@link System#nanoTime()}
+     */
+    public void setDeadline(long deadline) {
+        this.deadline = deadline;
+        hasDeadline = true;
+        untilClockRead = 0;
+    }
+    
+    /**
+     * Sets a deadline budgetNanos from now, which is pushed ahead to
+     * budgetNanos from when the clock is read next whenever there has been
+     * progress since it was read last.
+     */
+    public void setIdleBudget(long budgetNanos) {
+        idleBudget = budgetNanos;
+        progressAtClockRead = progress;
+        setDeadline(System.nanoTime() + budgetNanos);
+    }
+    
+    /**
+     * Notes that the input has moved on, for the idle budget.
+     */
+    public void progressed() {
+        progress++;
+    }
+    
+    public boolean isCancelled() {
+        if(cancelled) {
+            return true;
+        }
+        if(hasDeadline) {
+            long now = System.nanoTime();
+            if(idleBudget > 0 && progress != progressAtClockRead) {
+                progressAtClockRead = progress;
+                deadline = now + idleBudget;
+            }
+            if(now - deadline >= 0) {
+                cancelled = true;
+                return true;
+            }
+        }
+        
+        return false;
+    }
+    
+    public void throwIfCancelled() {
+        if(Thread.currentThread().isInterrupted()) {
+            throw new MatchCancelledException("Thread was interrupted.");
+        }
+        if(cancelled) {
+            throw new MatchCancelledException("Match was cancelled.");
+        }
+        if(hasDeadline && --untilClockRead <= 0) {
+            untilClockRead = CHECKS_PER_CLOCK_READ;
+            if(isCancelled()) {
+                throw new MatchCancelledException("Match ran past its deadline.");
+            }
+        }
+    }
+}
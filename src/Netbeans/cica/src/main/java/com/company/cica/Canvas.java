@@ -23,10 +23,26 @@
  */
 package com.company.cica;
 
+import java.util.function.Consumer;
+
 /**
  *
  * @author jakob
  */
 public interface Canvas {
     Drawing newDrawing(int x, int y);
+    
+    /**
+     * Finds the drawing nearest to a location, at most radius away from its
+     * bounds, or null if there is none or the canvas cannot tell.
+     */
+    default Drawing drawingAt(int x, int y, int radius) {
+        return null;
+    }
+    
+    /**
+     * Calls action with each drawing whose bounds overlap the given area.
+     */
+    default void drawingsIn(int x, int y, int width, int height, Consumer<? super Drawing> action) {
+    }
 }
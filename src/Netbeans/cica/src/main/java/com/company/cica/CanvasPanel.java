@@ -0,0 +1,369 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+
+/**
+ * Retained mode canvas. Drawings that have been committed are rasterized
+ * once into a cached layer; drawings still in progress are drawn on top of it
+ * on every paint. Changes only repaint the area they touch, and the dirty
+ * area is collected so at most one repaint is pending at a time.
+ * 
+ * Any number of threads may draw while the canvas is painted. The points of
+ * a drawing are kept in a {@link PointBuffer} and the drawings in progress in
+ * a copy-on-write list, so the painter reads both without locking. Commits
+ * and deletions of committed drawings reach the painter as a queue of layer
+ * changes, which it applies to a model of the layer of its own; it thereby
+ * renders the canvas as it was at one point in time and never holds up the
+ * threads drawing.
+ * 
+ * Committed drawings are kept in a {@link SpatialGrid}, which answers the
+ * location queries of {@link Canvas}; the painter keeps another to limit the
+ * redrawing of the cached layer to the area of a deleted drawing.
+ *
+ * @author jakob
+ */
+class CanvasPanel extends JPanel implements Canvas {
+    // Room for the stroke width and antialiasing around a drawing's points
+    private static final int PADDING = 2;
+    
+    private class DrawingPanel implements Drawing {
+        private final PointBuffer points;
+        private int lastX;
+        private int lastY;
+        // Guarded by lock
+        private boolean committed;
+        private boolean deleted;
+        private SpatialGrid.Entry<DrawingPanel> entry;
+        // Confined to the painter
+        private SpatialGrid.Entry<DrawingPanel> layerEntry;
+        
+        public DrawingPanel(int x, int y) {
+            points = new PointBuffer(x, y);
+            lastX = x;
+            lastY = y;
+        }
+        
+        @Override
+        public void moveTo(int x, int y) {
+            points.append(x, y);
+            
+            int segmentMinX = Math.min(lastX, x);
+            int segmentMinY = Math.min(lastY, y);
+            int segmentMaxX = Math.max(lastX, x);
+            int segmentMaxY = Math.max(lastY, y);
+            
+            synchronized(lock) {
+                if(committed && !deleted) {
+                    Rectangle bounds = points.getBounds();
+                    entry.update(bounds.x, bounds.y, bounds.x + bounds.width, bounds.y + bounds.height);
+                    layerChanges.add(new LayerChange(LayerChange.EXTENDED, this, 
+                        new Rectangle(segmentMinX, segmentMinY, segmentMaxX - segmentMinX, segmentMaxY - segmentMinY)));
+                }
+            }
+            
+            markDirty(segmentMinX, segmentMinY, segmentMaxX, segmentMaxY);
+            lastX = x;
+            lastY = y;
+        }
+
+        @Override
+        public void delete() {
+            synchronized(lock) {
+                if(deleted) {
+                    return;
+                }
+                deleted = true;
+                if(committed) {
+                    entry.remove();
+                    layerChanges.add(new LayerChange(LayerChange.DELETED, this, null));
+                } else {
+                    liveDrawings.remove(this);
+                }
+            }
+            
+            markDirty(this);
+        }
+
+        @Override
+        public void commit() {
+            synchronized(lock) {
+                if(committed || deleted) {
+                    return;
+                }
+                committed = true;
+                Rectangle bounds = points.getBounds();
+                entry = committedIndex.add(this, bounds.x, bounds.y, bounds.x + bounds.width, bounds.y + bounds.height);
+                // Queued before it leaves the live drawings, so the painter
+                // cannot miss it in between
+                layerChanges.add(new LayerChange(LayerChange.COMMITTED, this, null));
+                liveDrawings.remove(this);
+            }
+            
+            markDirty(this);
+        }
+        
+        @Override
+        public Rectangle getBounds() {
+            return points.getBounds();
+        }
+        
+        public void drawOn(Graphics2D graphics) {
+            PointBuffer.Points snapshot = points.snapshot();
+            graphics.drawPolyline(snapshot.xs, snapshot.ys, snapshot.count);
+        }
+        
+        public boolean intersects(Rectangle area) {
+            return points.intersects(area, PADDING);
+        }
+    }
+    
+    // A change of the committed drawings, for the painter to apply to its
+    // layer
+    private static class LayerChange {
+        static final int COMMITTED = 0;
+        static final int DELETED = 1;
+        static final int EXTENDED = 2;
+        
+        final int kind;
+        final DrawingPanel drawing;
+        final Rectangle area;
+
+        LayerChange(int kind, DrawingPanel drawing, Rectangle area) {
+            this.kind = kind;
+            this.drawing = drawing;
+            this.area = area;
+        }
+    }
+    
+    private final Object lock = new Object();
+    private final CopyOnWriteArrayList<DrawingPanel> liveDrawings = new CopyOnWriteArrayList<>();
+    private final SpatialGrid<DrawingPanel> committedIndex = new SpatialGrid<>(64);
+    private final ConcurrentLinkedQueue<LayerChange> layerChanges = new ConcurrentLinkedQueue<>();
+    
+    // The model of the layer, confined to the painter
+    private final LinkedHashSet<DrawingPanel> layerDrawings = new LinkedHashSet<>();
+    private final LinkedHashSet<DrawingPanel> newlyLayered = new LinkedHashSet<>();
+    private final SpatialGrid<DrawingPanel> layerIndex = new SpatialGrid<>(64);
+    private final ArrayList<Rectangle> invalidLayerAreas = new ArrayList<>();
+    private boolean layerValid;
+    private BufferedImage committedLayer;
+    
+    private final Object dirtyLock = new Object();
+    private int dirtyMinX;
+    private int dirtyMinY;
+    private int dirtyMaxX;
+    private int dirtyMaxY;
+    private boolean dirty;
+    private final Runnable repaintDirty = () -> {
+        int x;
+        int y;
+        int width;
+        int height;
+        synchronized(dirtyLock) {
+            x = dirtyMinX - PADDING;
+            y = dirtyMinY - PADDING;
+            width = dirtyMaxX - dirtyMinX + 2 * PADDING + 1;
+            height = dirtyMaxY - dirtyMinY + 2 * PADDING + 1;
+            dirty = false;
+        }
+        repaint(x, y, width, height);
+    };
+    
+    @Override
+    public Drawing newDrawing(int x, int y) {
+        DrawingPanel drawing = new DrawingPanel(x, y);
+        
+        liveDrawings.add(drawing);
+        markDirty(x, y, x, y);
+        
+        return drawing;
+    }
+
+    @Override
+    public Drawing drawingAt(int x, int y, int radius) {
+        synchronized(lock) {
+            return committedIndex.nearest(x, y, radius);
+        }
+    }
+
+    @Override
+    public void drawingsIn(int x, int y, int width, int height, Consumer<? super Drawing> action) {
+        ArrayList<Drawing> found = new ArrayList<>();
+        synchronized(lock) {
+            committedIndex.query(x, y, x + width, y + height, found::add);
+        }
+        // Outside the lock, so the action may e.g. delete what it is given
+        found.forEach(action);
+    }
+    
+    private void markDirty(DrawingPanel drawing) {
+        Rectangle bounds = drawing.getBounds();
+        markDirty(bounds.x, bounds.y, bounds.x + bounds.width, bounds.y + bounds.height);
+    }
+    
+    private void markDirty(int minX, int minY, int maxX, int maxY) {
+        boolean schedule;
+        
+        synchronized(dirtyLock) {
+            if(dirty) {
+                dirtyMinX = Math.min(dirtyMinX, minX);
+                dirtyMinY = Math.min(dirtyMinY, minY);
+                dirtyMaxX = Math.max(dirtyMaxX, maxX);
+                dirtyMaxY = Math.max(dirtyMaxY, maxY);
+                schedule = false;
+            } else {
+                dirtyMinX = minX;
+                dirtyMinY = minY;
+                dirtyMaxX = maxX;
+                dirtyMaxY = maxY;
+                dirty = true;
+                schedule = true;
+            }
+        }
+        
+        if(schedule) {
+            SwingUtilities.invokeLater(repaintDirty);
+        }
+    }
+    
+    private static void antialias(Graphics2D graphics) {
+        graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+    }
+    
+    private static void clear(Graphics2D graphics, int x, int y, int width, int height) {
+        graphics.setComposite(AlphaComposite.Clear);
+        graphics.fillRect(x, y, width, height);
+        graphics.setComposite(AlphaComposite.SrcOver);
+    }
+    
+    private void applyLayerChanges() {
+        LayerChange change;
+        while((change = layerChanges.poll()) != null) {
+            DrawingPanel drawing = change.drawing;
+            Rectangle bounds = drawing.getBounds();
+            
+            switch(change.kind) {
+                case LayerChange.COMMITTED:
+                    layerDrawings.add(drawing);
+                    newlyLayered.add(drawing);
+                    drawing.layerEntry = layerIndex.add(drawing, bounds.x, bounds.y, bounds.x + bounds.width, bounds.y + bounds.height);
+                    break;
+                case LayerChange.DELETED:
+                    if(layerDrawings.remove(drawing)) {
+                        drawing.layerEntry.remove();
+                        newlyLayered.remove(drawing);
+                        invalidLayerAreas.add(bounds);
+                    }
+                    break;
+                case LayerChange.EXTENDED:
+                    if(layerDrawings.contains(drawing)) {
+                        drawing.layerEntry.update(bounds.x, bounds.y, bounds.x + bounds.width, bounds.y + bounds.height);
+                        invalidLayerAreas.add(change.area);
+                    }
+                    break;
+            }
+        }
+    }
+    
+    private void updateCommittedLayer() {
+        int width = Math.max(getWidth(), 1);
+        int height = Math.max(getHeight(), 1);
+        
+        if(committedLayer == null || committedLayer.getWidth() != width || committedLayer.getHeight() != height) {
+            committedLayer = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            layerValid = false;
+        }
+        
+        Graphics2D layerGraphics = committedLayer.createGraphics();
+        try {
+            antialias(layerGraphics);
+            layerGraphics.setColor(getForeground());
+            
+            if(!layerValid) {
+                clear(layerGraphics, 0, 0, width, height);
+                layerDrawings.forEach(d -> d.drawOn(layerGraphics));
+                layerValid = true;
+            } else {
+                for(Rectangle area: invalidLayerAreas) {
+                    area.grow(PADDING, PADDING);
+                    clear(layerGraphics, area.x, area.y, area.width + 1, area.height + 1);
+                    layerGraphics.setClip(area.x, area.y, area.width + 1, area.height + 1);
+                    layerIndex.query(area.x, area.y, area.x + area.width, area.y + area.height, d -> {
+                        if(!newlyLayered.contains(d)) {
+                            d.drawOn(layerGraphics);
+                        }
+                    });
+                    layerGraphics.setClip(null);
+                }
+                newlyLayered.forEach(d -> d.drawOn(layerGraphics));
+            }
+            invalidLayerAreas.clear();
+            newlyLayered.clear();
+        } finally {
+            layerGraphics.dispose();
+        }
+    }
+
+    @Override
+    public void paint(Graphics g) {
+        Graphics2D g2 = (Graphics2D)g;
+        Rectangle clip = g.getClipBounds();
+        if(clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        
+        g.setColor(getBackground());
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+        
+        // The live drawings before the layer changes: a drawing committed
+        // in between is then either still live here or already layered
+        Object[] live = liveDrawings.toArray();
+        applyLayerChanges();
+        updateCommittedLayer();
+        g.drawImage(committedLayer, 0, 0, null);
+        
+        antialias(g2);
+        g.setColor(getForeground());
+        for(Object o: live) {
+            DrawingPanel drawing = (DrawingPanel) o;
+            if(drawing.layerEntry == null && drawing.intersects(clip)) {
+                drawing.drawOn(g2);
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shows what a {@link RecognitionEngine} reports on a {@link CanvasPanel}:
+ * the ink of strokes in progress, their previews and finally the recognized
+ * actions, which are committed. The ink of strokes that were abandoned is
+ * committed as it is. Repainting is left to the panel.
+ *
+ * @author jakob
+ */
+class CanvasRenderer implements RecognitionListener {
+    private final CanvasPanel canvasPanel;
+    private final ConcurrentHashMap<Integer, Drawing> inks = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, PreviewCanvas> previews = new ConcurrentHashMap<>();
+
+    public CanvasRenderer(CanvasPanel canvasPanel) {
+        this.canvasPanel = canvasPanel;
+    }
+
+    @Override
+    public void strokeStarted(int pointer, int x, int y) {
+        inks.put(pointer, canvasPanel.newDrawing(x, y));
+    }
+
+    @Override
+    public void strokeMoved(int pointer, int x, int y) {
+        Drawing ink = inks.get(pointer);
+        if(ink != null) {
+            ink.moveTo(x, y);
+        }
+    }
+
+    @Override
+    public void previewChanged(int pointer, CanvasAction preview) {
+        PreviewCanvas previewCanvas = previews.computeIfAbsent(pointer, p -> new PreviewCanvas(canvasPanel));
+        previewCanvas.clear();
+        if(preview != null) {
+            preview.perform(previewCanvas);
+        }
+    }
+
+    @Override
+    public void recognized(int pointer, CanvasAction action) {
+        endStroke(pointer);
+        PreviewCanvas result = new PreviewCanvas(canvasPanel);
+        action.perform(result);
+        result.commit();
+    }
+
+    @Override
+    public void rejected(int pointer) {
+        endStroke(pointer);
+    }
+    
+    @Override
+    public void abandoned(int pointer) {
+        Drawing ink = inks.remove(pointer);
+        if(ink != null) {
+            ink.commit();
+        }
+        endStroke(pointer);
+    }
+    
+    private void endStroke(int pointer) {
+        Drawing ink = inks.remove(pointer);
+        if(ink != null) {
+            ink.delete();
+        }
+        PreviewCanvas previewCanvas = previews.remove(pointer);
+        if(previewCanvas != null) {
+            previewCanvas.clear();
+        }
+    }
+}
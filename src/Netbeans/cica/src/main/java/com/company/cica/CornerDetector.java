@@ -0,0 +1,384 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import java.util.Arrays;
+
+/**
+ * Finds the corners of a stroke while it is being drawn. The points are
+ * walked in steps of a fixed length, and at each step the direction of the
+ * stroke over the steps just before is compared to its direction over the
+ * steps just after. Where that turn exceeds the corner angle for a few steps
+ * in a row, the point within them that lies farthest from the chord is a
+ * corner; turns that go on for longer are bends rather than corners.
+ * 
+ * The stretches between corners, and whether the stroke closes on itself,
+ * are collected in a {@link SegmentGraph} once the stroke has ended. The
+ * detector may be reset and reused for the next stroke.
+ * 
+ * The points of the stroke are kept until it ends, to place the corners and
+ * measure the stretches between them, up to a maximum like the lookback of
+ * {@link RecoverablePenInput}. Longer strokes fail with a
+ * {@link LookbackExceededException}.
+ *
+ * @author jakob
+ */
+public class CornerDetector {
+    // Length of the steps the directions are measured over
+    private static final int STEP = 10;
+    // Number of steps on either side of a point its turn is measured over
+    private static final int ARM = 2;
+    private static final double CORNER_ANGLE = 45.0;
+    // Turns over more consecutive steps than this are bends
+    private static final int MAX_CORNER_STEPS = 6;
+    // Corners the stroke turns less at, from one corner to the next, are
+    // dropped
+    private static final double SHALLOW_ANGLE = 30.0;
+    // Straightness is measured against chords of at least this length
+    private static final double MIN_CHORD = 2 * ARM * STEP;
+    // How close the ends of a closed stroke are, relative to its size
+    private static final double CLOSE_RATIO = 0.25;
+    // How many of the corners that are not shallow so far the end of the
+    // stroke may still take away: those next to either end, and the ones
+    // their removal makes shallow in turn
+    private static final int UNSETTLED_CORNERS = 5;
+    
+    private final int maxPoints;
+    private int[] xs = new int[64];
+    private int[] ys = new int[64];
+    private double[] lengths = new double[64];
+    private int count;
+    private int[] steps = new int[16];
+    private int stepCount;
+    private int[] corners = new int[8];
+    private int cornerCount;
+    private int[] settled = new int[8];
+    private int minX;
+    private int minY;
+    private int maxX;
+    private int maxY;
+    
+    private int runSteps;
+    private boolean runClockwise;
+    private int runBestStep;
+    private int runBestFrom;
+    private int runBestTo;
+    private double runBestTurn;
+    
+    public CornerDetector() {
+        this(RecoverablePenInput.DEFAULT_MAX_LOOKBACK);
+    }
+
+    /**
+     * @param maxPoints the number of points of a stroke kept at most
+     */
+    public CornerDetector(int maxPoints) {
+        this.maxPoints = maxPoints;
+    }
+    
+    /**
+     * Starts a new stroke at (x, y).
+     */
+    public void reset(int x, int y) {
+        count = 0;
+        stepCount = 0;
+        cornerCount = 0;
+        runSteps = 0;
+        minX = maxX = x;
+        minY = maxY = y;
+        add(x, y, 0);
+        addStep(0);
+    }
+    
+    public void point(int x, int y) {
+        int last = count - 1;
+        if(x == xs[last] && y == ys[last]) {
+            return;
+        }
+        
+        add(x, y, lengths[last] + Geometry.distance(xs[last], ys[last], x, y));
+        minX = Math.min(minX, x);
+        minY = Math.min(minY, y);
+        maxX = Math.max(maxX, x);
+        maxY = Math.max(maxY, y);
+        
+        int step = steps[stepCount - 1];
+        if(Geometry.distanceSquared(xs[step], ys[step], x, y) >= STEP * STEP) {
+            addStep(count - 1);
+        }
+    }
+    
+    /**
+     * The number of corners found so far. Corners show up a few steps after
+     * the pen has passed them. Until the stroke has ended this may be far
+     * more than it ends up with, as noise along the sides makes for corners
+     * that are only dropped as shallow at the end.
+     */
+    public int cornerCount() {
+        return cornerCount;
+    }
+    
+    /**
+     * The number of corners found so far that are not shallow, less a few
+     * that the ends of the stroke may still take away. This is what the
+     * stroke can be expected to keep at least, for deciding early that it
+     * has too many corners; it is not a strict bound, though noise of
+     * several pixels from point to point does not get the stroke below it.
+     */
+    public int settledCornerCount() {
+        if(cornerCount <= UNSETTLED_CORNERS) {
+            return 0;
+        }
+        
+        if(settled.length < corners.length) {
+            settled = new int[corners.length];
+        }
+        System.arraycopy(corners, 0, settled, 0, cornerCount);
+        return Math.max(removeShallowCorners(settled, cornerCount) - UNSETTLED_CORNERS, 0);
+    }
+    
+    /**
+     * The length of the stroke so far, along its path.
+     */
+    public double length() {
+        return lengths[count - 1];
+    }
+    
+    /**
+     * Ends the stroke and returns its graph. Corners within the first and
+     * last steps of an open stroke are not looked for, as they would only
+     * ever be hooks; those of a closed stroke are, with shorter arms.
+     */
+    public SegmentGraph end() {
+        closeRun();
+        
+        int last = count - 1;
+        double size = Math.max(maxX - minX, maxY - minY);
+        boolean closes = size > 0 
+            && Geometry.distance(xs[0], ys[0], xs[last], ys[last]) <= CLOSE_RATIO * size;
+        if(closes) {
+            examineEnds();
+        }
+        cornerCount = removeShallowCorners(corners, cornerCount);
+        
+        // Corners always lie strictly between the ends
+        int vertexCount = cornerCount + 2;
+        int[] vertices = new int[vertexCount];
+        vertices[0] = 0;
+        System.arraycopy(corners, 0, vertices, 1, cornerCount);
+        vertices[vertexCount - 1] = last;
+        
+        int[] vertexXs = new int[vertexCount];
+        int[] vertexYs = new int[vertexCount];
+        double[] straightness = new double[vertexCount - 1];
+        for(int v = 0; v < vertexCount; v++) {
+            vertexXs[v] = xs[vertices[v]];
+            vertexYs[v] = ys[vertices[v]];
+            if(v > 0) {
+                straightness[v - 1] = straightness(vertices[v - 1], vertices[v]);
+            }
+        }
+        
+        return new SegmentGraph(
+            Segments.of(vertexXs, vertexYs, vertexCount), straightness, 
+            closes && vertexCount > 2, lengths[last], minX, minY, maxX, maxY);
+    }
+    
+    // Looks for corners at the steps that lack a full arm on either side
+    private void examineEnds() {
+        int last = count - 1;
+        int lastStep = steps[stepCount - 1];
+        if(lastStep != last && Geometry.distanceSquared(xs[lastStep], ys[lastStep], xs[last], ys[last]) * 4 >= STEP * STEP) {
+            addStep(last);
+        }
+        
+        for(int step = Math.max(ARM, stepCount - ARM); step < stepCount - 1; step++) {
+            examine(step - ARM, step, stepCount - 1);
+        }
+        closeRun();
+        
+        int[] later = Arrays.copyOf(corners, cornerCount);
+        cornerCount = 0;
+        for(int step = 1; step < Math.min(ARM, stepCount - 1); step++) {
+            examine(0, step, Math.min(step + ARM, stepCount - 1));
+        }
+        closeRun();
+        for(int corner : later) {
+            addCorner(corner);
+        }
+    }
+    
+    // Drops corners the chords on either side hardly turn at, which noise
+    // may leave along a side, and returns how many are left
+    private int removeShallowCorners(int[] corners, int cornerCount) {
+        int c = 0;
+        while(c < cornerCount) {
+            int previous = c > 0 ? corners[c - 1] : 0;
+            int next = c + 1 < cornerCount ? corners[c + 1] : count - 1;
+            int at = corners[c];
+            double turn = Geometry.turn(
+                Geometry.direction(xs[previous], ys[previous], xs[at], ys[at]), 
+                Geometry.direction(xs[at], ys[at], xs[next], ys[next]));
+            if(Math.min(turn, 360 - turn) < SHALLOW_ANGLE) {
+                System.arraycopy(corners, c + 1, corners, c, cornerCount - c - 1);
+                cornerCount--;
+                // The turn at the corner before has changed with it
+                c = Math.max(c - 1, 0);
+            } else {
+                c++;
+            }
+        }
+        
+        return cornerCount;
+    }
+    
+    // One less the farthest the points between from and to stray from the
+    // chord, relative to its length
+    private double straightness(int from, int to) {
+        int dx = xs[to] - xs[from];
+        int dy = ys[to] - ys[from];
+        double chord = Geometry.length(dx, dy);
+        if(chord == 0) {
+            return to - from > 1 ? 0.0 : 1.0;
+        }
+        // The wobble of the pen would outweigh the length of short chords
+        double reference = Math.max(chord, MIN_CHORD);
+        
+        long farthest = 0;
+        for(int i = from + 1; i < to; i++) {
+            long area = Math.abs((long)(xs[i] - xs[from]) * dy - (long)(ys[i] - ys[from]) * dx);
+            farthest = Math.max(farthest, area);
+        }
+        
+        return Math.max(0.0, 1.0 - farthest / (chord * reference));
+    }
+    
+    private void add(int x, int y, double length) {
+        if(count == maxPoints) {
+            throw new LookbackExceededException("Cannot keep more than " + maxPoints + " points of a stroke to find its corners.");
+        }
+        if(count == xs.length) {
+            int capacity = (int)Math.min(count * 2L, maxPoints);
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+        }
+        
+        xs[count] = x;
+        ys[count] = y;
+        lengths[count] = length;
+        count++;
+    }
+    
+    private void addStep(int point) {
+        if(stepCount == steps.length) {
+            steps = Arrays.copyOf(steps, stepCount * 2);
+        }
+        steps[stepCount++] = point;
+        
+        // The step with a full arm on either side
+        int center = stepCount - 1 - ARM;
+        if(center >= ARM) {
+            examine(center - ARM, center, center + ARM);
+        }
+    }
+    
+    private void examine(int beforeStep, int step, int afterStep) {
+        int before = steps[beforeStep];
+        int at = steps[step];
+        int after = steps[afterStep];
+        double turn = Geometry.turn(
+            Geometry.direction(xs[before], ys[before], xs[at], ys[at]), 
+            Geometry.direction(xs[at], ys[at], xs[after], ys[after]));
+        boolean clockwise = turn <= 180;
+        double sharpness = clockwise ? turn : 360 - turn;
+        
+        if(sharpness < CORNER_ANGLE) {
+            closeRun();
+            return;
+        }
+        
+        if(runSteps > 0 && clockwise != runClockwise) {
+            closeRun();
+        }
+        if(runSteps == 0) {
+            runClockwise = clockwise;
+            runBestTurn = 0;
+        }
+        runSteps++;
+        if(sharpness > runBestTurn) {
+            runBestTurn = sharpness;
+            runBestStep = step;
+            runBestFrom = before;
+            runBestTo = after;
+        }
+    }
+    
+    private void closeRun() {
+        if(runSteps > 0 && runSteps <= MAX_CORNER_STEPS) {
+            addCorner(refine(runBestFrom, steps[runBestStep], runBestTo));
+        }
+        runSteps = 0;
+    }
+    
+    // The point between from and to that lies farthest from the chord
+    // across them
+    private int refine(int from, int at, int to) {
+        int dx = xs[to] - xs[from];
+        int dy = ys[to] - ys[from];
+        
+        int farthest = at;
+        long farthestDistance = -1;
+        for(int i = from + 1; i < to; i++) {
+            long ex = xs[i] - xs[from];
+            long ey = ys[i] - ys[from];
+            // Twice the area of the triangle, or the distance from the start
+            // when the stroke doubles back onto it
+            long distance = dx == 0 && dy == 0 
+                ? ex * ex + ey * ey
+                : Math.abs(ex * dy - ey * dx);
+            if(distance > farthestDistance) {
+                farthestDistance = distance;
+                farthest = i;
+            }
+        }
+        
+        return farthest;
+    }
+    
+    private void addCorner(int point) {
+        if(cornerCount > 0) {
+            int previous = corners[cornerCount - 1];
+            // Corners closer than an arm apart cannot be told apart
+            if(point <= previous || Geometry.distanceSquared(xs[previous], ys[previous], xs[point], ys[point]) < ARM * STEP * ARM * STEP) {
+                return;
+            }
+        }
+        
+        if(cornerCount == corners.length) {
+            corners = Arrays.copyOf(corners, cornerCount * 2);
+        }
+        corners[cornerCount++] = point;
+    }
+}
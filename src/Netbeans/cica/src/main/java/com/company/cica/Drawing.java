@@ -23,6 +23,8 @@
  */
 package com.company.cica;
 
+import java.awt.Rectangle;
+
 /**
  *
  * @author jakob
@@ -33,4 +35,17 @@ public interface Drawing {
 
     void delete();
     
+    /**
+     * Tells the canvas the drawing will not change any more, so it may be
+     * rendered from a cache.
+     */
+    default void commit() {
+    }
+    
+    /**
+     * The area covered by the drawing, or null if unknown.
+     */
+    default Rectangle getBounds() {
+        return null;
+    }
 }
@@ -0,0 +1,416 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A vocabulary of named gestures, each with cheap preconditions a stroke has
+ * to meet before its matcher is even created: where the stroke starts, how
+ * long it is at least and how many corners it has. The registry is itself a
+ * {@link MatcherFactory}; for each stroke it only tries the gestures whose
+ * preconditions hold, in the order they were registered.
+ * 
+ * A gesture is either a {@link MatcherFactory} or a {@link Shapes.Shape}.
+ * Shapes are read off the {@link SegmentGraph} the registry builds anyway
+ * while measuring the stroke, so any number of them costs one pass.
+ * 
+ * Gestures are picked through an index rather than by testing every
+ * precondition: start regions are kept in a {@link SpatialGrid}, and there is
+ * a bit set of gestures per corner count (up to 16, which stands for any
+ * more) and per prefix of the gestures sorted by minimum length. The
+ * candidates of a stroke are the intersection of the sets its features
+ * select. Length and corners are measured in one pass over the stroke, which
+ * is then handed to the candidates from its start; the pass is skipped when
+ * no candidate has such a precondition or is a shape, and cut short once the
+ * stroke has more corners than any of them allows, even after the stroke is
+ * done with the corners noise leaves along its sides. Corners are those of a
+ * {@link CornerDetector}.
+ * 
+ * The measuring pass keeps a mark on the input and reads the stroke to its
+ * end before any gesture runs. Under an {@link IncrementalMatcher}, which
+ * evaluates the stroke so far again and again, each evaluation measures it
+ * from the start with a new detector, so the events read over a stroke grow
+ * with the number of evaluations as they do for any candidate there. That
+ * is the price of deciding on whole-stroke features before the matchers of
+ * the gestures run, rather than carrying a detector from one evaluation to
+ * the next. On the {@link PartialInput} of an incremental matcher, measuring
+ * the stroke so far does not count as reaching its end. The registry is
+ * undecided only while the gestures it tries are, or while it rules out
+ * gestures that a longer stroke could bring back.
+ * 
+ * Matchers of registered gestures are counted under their names by
+ * {@link RecognitionMetrics}.
+ *
+ * @author jakob
+ */
+public class GestureRegistry implements MatcherFactory {
+    // Corner counts above this select the same gestures
+    private static final int MAX_CORNERS = 16;
+    
+    private final String[] names;
+    private final MatcherFactory[] factories;
+    private final Shapes.Shape[] shapes;
+    private final long[] unrestrictedStart;
+    private final SpatialGrid<Integer> startRegions;
+    private final int[][] regions;
+    private final long[][] byCorners;
+    private final double[] minLengths;
+    private final long[][] byMinLength;
+    private final long[] measured;
+    private final int[] maxCorners;
+
+    private GestureRegistry(ArrayList<Builder.Gesture> gestures) {
+        int count = gestures.size();
+        names = new String[count];
+        factories = new MatcherFactory[count];
+        shapes = new Shapes.Shape[count];
+        int words = (count + 63) >>> 6;
+        unrestrictedStart = new long[words];
+        startRegions = new SpatialGrid<>(64);
+        regions = new int[count][];
+        byCorners = new long[MAX_CORNERS + 1][words];
+        measured = new long[words];
+        maxCorners = new int[count];
+        
+        Integer[] byLength = new Integer[count];
+        
+        for(int g = 0; g < count; g++) {
+            Builder.Gesture gesture = gestures.get(g);
+            names[g] = gesture.name;
+            if(gesture.shape != null) {
+                shapes[g] = gesture.shape;
+            } else {
+                factories[g] = RecognitionMetrics.gesture(gesture.name, gesture.factory);
+            }
+            
+            if(gesture.region != null) {
+                int[] region = gesture.region;
+                regions[g] = region;
+                startRegions.add(g, region[0], region[1], region[2], region[3]);
+            } else {
+                set(unrestrictedStart, g);
+            }
+            
+            for(int corners = 0; corners <= MAX_CORNERS; corners++) {
+                if(corners >= gesture.minCorners && corners <= gesture.maxCorners) {
+                    set(byCorners[corners], g);
+                }
+            }
+            
+            if(gesture.shape != null || gesture.minLength > 0 || gesture.minCorners > 0 || gesture.maxCorners < Integer.MAX_VALUE) {
+                set(measured, g);
+            }
+            maxCorners[g] = gesture.maxCorners;
+            
+            byLength[g] = g;
+        }
+        
+        // byMinLength[i] holds the gestures with the i smallest minimum
+        // lengths
+        Arrays.sort(byLength, (a, b) -> Double.compare(gestures.get(a).minLength, gestures.get(b).minLength));
+        minLengths = new double[count];
+        byMinLength = new long[count + 1][];
+        byMinLength[0] = new long[words];
+        for(int i = 0; i < count; i++) {
+            minLengths[i] = gestures.get(byLength[i]).minLength;
+            byMinLength[i + 1] = byMinLength[i].clone();
+            set(byMinLength[i + 1], byLength[i]);
+        }
+    }
+    
+    public static Builder builder() {
+        return new Builder();
+    }
+    
+    public static class Builder {
+        private static class Gesture {
+            private final String name;
+            private final MatcherFactory factory;
+            private final Shapes.Shape shape;
+            private int[] region;
+            private double minLength;
+            private int minCorners;
+            private int maxCorners = Integer.MAX_VALUE;
+
+            private Gesture(String name, MatcherFactory factory, Shapes.Shape shape) {
+                this.name = name;
+                this.factory = factory;
+                this.shape = shape;
+            }
+        }
+        
+        private final ArrayList<Gesture> gestures = new ArrayList<>();
+        
+        /**
+         * Adds a gesture; the preconditions that follow apply to it. Without
+         * any, its matcher is tried on every stroke.
+         */
+        public Builder gesture(String name, MatcherFactory factory) {
+            gestures.add(new Gesture(name, factory, null));
+            return this;
+        }
+        
+        /**
+         * Adds a gesture recognized from the graph of the stroke; the
+         * preconditions that follow apply to it.
+         */
+        public Builder shape(String name, Shapes.Shape shape) {
+            gestures.add(new Gesture(name, null, shape));
+            return this;
+        }
+        
+        private Gesture last() {
+            if(gestures.isEmpty()) {
+                throw new IllegalStateException("Add a gesture before its preconditions.");
+            }
+            
+            return gestures.get(gestures.size() - 1);
+        }
+        
+        /**
+         * Strokes have to start within the given area.
+         */
+        public Builder startingIn(int x, int y, int width, int height) {
+            last().region = new int[] {x, y, x + width, y + height};
+            return this;
+        }
+        
+        /**
+         * Strokes have to be at least this long, along their path.
+         */
+        public Builder minLength(double minLength) {
+            last().minLength = minLength;
+            return this;
+        }
+        
+        /**
+         * Strokes have to turn sharply at least min and at most max times.
+         */
+        public Builder corners(int min, int max) {
+            last().minCorners = min;
+            last().maxCorners = max;
+            return this;
+        }
+        
+        public GestureRegistry build() {
+            return new GestureRegistry(new ArrayList<>(gestures));
+        }
+    }
+    
+    public int getGestureCount() {
+        return names.length;
+    }
+    
+    public String getName(int gesture) {
+        return names[gesture];
+    }
+
+    @Override
+    public Matcher fromLocation(int x, int y) {
+        return fromLocation(null, x, y);
+    }
+
+    @Override
+    public Matcher fromLocation(Canvas canvas, int x, int y) {
+        long[] candidates = unrestrictedStart.clone();
+        startRegions.query(x, y, x, y, g -> {
+            int[] region = regions[g];
+            // The grid may report regions that merely share a cell
+            if(x >= region[0] && y >= region[1] && x <= region[2] && y <= region[3]) {
+                set(candidates, g);
+            }
+        });
+        
+        return new Matcher() {
+            @Override
+            public Object match(Input input) throws InterruptedException {
+                PenInput penInput = PenInputs.asPenInput(input);
+                SegmentGraph graph = null;
+                if(intersects(candidates, measured)) {
+                    long[] provisional = new long[candidates.length];
+                    boolean starved = input instanceof PartialInput && ((PartialInput) input).isStarved();
+                    
+                    if(input instanceof RecoverablePenInput) {
+                        RecoverablePenInput recoverable = (RecoverablePenInput) input;
+                        int mark = recoverable.mark();
+                        try {
+                            graph = select(candidates, provisional, penInput, x, y);
+                            recoverable.reset(mark);
+                        } finally {
+                            recoverable.release(mark);
+                        }
+                    } else {
+                        InputState state = input.getState();
+                        try {
+                            graph = select(candidates, provisional, penInput, x, y);
+                            state.recover();
+                        } finally {
+                            state.discard();
+                        }
+                    }
+                    
+                    if(input instanceof PartialInput) {
+                        // Measuring the stroke so far does not make the
+                        // registry undecided; ruling out gestures that more
+                        // events could bring back does
+                        ((PartialInput) input).setStarved(starved || intersects(provisional, provisional));
+                    }
+                }
+                
+                ArrayList<Matcher> alternatives = new ArrayList<>();
+                for(int g = nextSet(candidates, 0); g != -1; g = nextSet(candidates, g + 1)) {
+                    if(shapes[g] != null) {
+                        alternatives.add(RecognitionMetrics.gesture(names[g], shapeMatcher(shapes[g], graph)));
+                    } else {
+                        alternatives.add(factories[g].fromLocation(canvas, x, y));
+                    }
+                }
+                
+                switch(alternatives.size()) {
+                    case 0:
+                        return null;
+                    case 1:
+                        return alternatives.get(0).match(input);
+                    default:
+                        return Matchers.alt(alternatives.toArray(new Matcher[alternatives.size()])).match(input);
+                }
+            }
+        };
+    }
+    
+    // Consumes the stroke, whose graph is already known
+    private static Matcher shapeMatcher(Shapes.Shape shape, SegmentGraph graph) {
+        return input -> {
+            PenInput penInput = PenInputs.asPenInput(input);
+            PenBatch batch = new PenBatch(64);
+            int count;
+            while((count = penInput.fill(batch)) > 0) {
+                penInput.skip(count);
+            }
+            
+            return penInput.atEnd() ? shape.recognize(graph) : null;
+        };
+    }
+    
+    // Narrows the candidates down by the length and corners of the stroke,
+    // and returns its graph if it was read to the end. Gestures ruled out by
+    // what the rest of the stroke could still change are set in provisional.
+    private SegmentGraph select(long[] candidates, long[] provisional, PenInput input, int x, int y) {
+        int cornerCeiling = 0;
+        for(int g = nextSet(candidates, 0); g != -1; g = nextSet(candidates, g + 1)) {
+            if(isSet(measured, g)) {
+                cornerCeiling = Math.max(cornerCeiling, maxCorners[g]);
+            }
+        }
+        
+        CornerDetector detector = new CornerDetector();
+        detector.reset(x, y);
+        
+        PenBatch batch = new PenBatch(64);
+        int count;
+        while((count = input.fill(batch)) > 0) {
+            for(int i = 0; i < count; i++) {
+                if(batch.kind(i) == PenEvents.MOVED) {
+                    detector.point(batch.x(i), batch.y(i));
+                }
+            }
+            input.skip(count);
+            
+            // The raw count settles down a lot by the end of the stroke
+            if(detector.cornerCount() > cornerCeiling && detector.settledCornerCount() > cornerCeiling) {
+                // None of the measured candidates is left
+                for(int w = 0; w < candidates.length; w++) {
+                    candidates[w] &= ~measured[w];
+                }
+                return null;
+            }
+        }
+        
+        int settledCorners = detector.settledCornerCount();
+        long[] before = candidates.clone();
+        SegmentGraph graph = detector.end();
+        and(candidates, byCorners[Math.min(detector.cornerCount(), MAX_CORNERS)]);
+        
+        // The gestures whose minimum length is at most the length
+        int longEnough = 0;
+        while(longEnough < minLengths.length && minLengths[longEnough] <= graph.getLength()) {
+            longEnough++;
+        }
+        and(candidates, byMinLength[longEnough]);
+        
+        // A stroke only gets longer, and only sheds corners down to the
+        // settled count
+        for(int g = nextSet(before, 0); g != -1; g = nextSet(before, g + 1)) {
+            if(!isSet(candidates, g) && settledCorners <= maxCorners[g]) {
+                set(provisional, g);
+            }
+        }
+        
+        return graph;
+    }
+    
+    private static void set(long[] bits, int index) {
+        bits[index >>> 6] |= 1L << index;
+    }
+    
+    private static boolean isSet(long[] bits, int index) {
+        return (bits[index >>> 6] & 1L << index) != 0;
+    }
+    
+    private static void and(long[] bits, long[] mask) {
+        for(int i = 0; i < bits.length; i++) {
+            bits[i] &= mask[i];
+        }
+    }
+    
+    private static boolean intersects(long[] bits, long[] other) {
+        for(int i = 0; i < bits.length; i++) {
+            if((bits[i] & other[i]) != 0) {
+                return true;
+            }
+        }
+        
+        return false;
+    }
+    
+    private static int nextSet(long[] bits, int from) {
+        int word = from >>> 6;
+        if(word >= bits.length) {
+            return -1;
+        }
+        
+        long remaining = bits[word] & (-1L << from);
+        while(true) {
+            if(remaining != 0) {
+                return (word << 6) + Long.numberOfTrailingZeros(remaining);
+            }
+            if(++word == bits.length) {
+                return -1;
+            }
+            remaining = bits[word];
+        }
+    }
+}
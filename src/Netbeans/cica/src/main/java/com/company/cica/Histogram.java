@@ -0,0 +1,170 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of non-negative long values, e.g. latencies in nanoseconds, in
+ * log-linear buckets: every power of two is split into 32 buckets, so values
+ * are kept within about 3% at any magnitude. Recording threads are spread by
+ * their identity hash over a fixed number of stripes, sized to the
+ * processors, so they rarely contend on the same counters; a
+ * {@link #snapshot()} sums the stripes. Memory stays the same however many
+ * threads record, which matters with a thread per stroke.
+ *
+ * @author jakob
+ */
+public class Histogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+    
+    private static final int STRIPES = stripesFor(Runtime.getRuntime().availableProcessors());
+    
+    private static class Stripe {
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS + 2);
+        private static final int TOTAL = BUCKETS;
+        private static final int MAX = BUCKETS + 1;
+        
+        private void record(int bucket, long value) {
+            counts.getAndIncrement(bucket);
+            counts.getAndAdd(TOTAL, value);
+            long max = counts.get(MAX);
+            while(value > max && !counts.compareAndSet(MAX, max, value)) {
+                max = counts.get(MAX);
+            }
+        }
+    }
+    
+    private final Stripe[] stripes;
+    
+    public Histogram() {
+        stripes = new Stripe[STRIPES];
+        for(int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+    
+    // A power of two of about twice the processors, at most 32
+    static int stripesFor(int processors) {
+        return Integer.highestOneBit(Math.max(1, Math.min(processors, 16)) * 2 - 1) << 1;
+    }
+    
+    public void record(long value) {
+        if(value < 0) {
+            value = 0;
+        }
+        stripeOf(Thread.currentThread()).record(bucketOf(value), value);
+    }
+    
+    private Stripe stripeOf(Thread thread) {
+        int hash = System.identityHashCode(thread);
+        hash ^= hash >>> 16;
+        return stripes[hash & (stripes.length - 1)];
+    }
+    
+    static int bucketOf(long value) {
+        if(value < SUB_BUCKETS) {
+            return (int)value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int)(value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return ((exponent - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS) | subBucket;
+    }
+    
+    // Smallest value falling into a bucket
+    static long lowerBoundOf(int bucket) {
+        if(bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = (bucket >>> SUB_BUCKET_BITS) + SUB_BUCKET_BITS - 1;
+        long subBucket = bucket & (SUB_BUCKETS - 1);
+        return (1L << exponent) | (subBucket << (exponent - SUB_BUCKET_BITS));
+    }
+    
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        long count = 0;
+        long total = 0;
+        long max = 0;
+        
+        for(Stripe stripe: stripes) {
+            for(int i = 0; i < BUCKETS; i++) {
+                long bucketCount = stripe.counts.get(i);
+                counts[i] += bucketCount;
+                count += bucketCount;
+            }
+            total += stripe.counts.get(Stripe.TOTAL);
+            max = Math.max(max, stripe.counts.get(Stripe.MAX));
+        }
+        
+        return new Snapshot(counts, count, total, max);
+    }
+    
+    public static class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long total;
+        private final long max;
+
+        private Snapshot(long[] counts, long count, long total, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.total = total;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMax() {
+            return max;
+        }
+        
+        public double getMean() {
+            return count > 0 ? (double)total / count : 0;
+        }
+        
+        /**
+         * @param percentile in [0, 100]
+         * @return the lower bound of the bucket holding the value at the
+         * percentile, or 0 if nothing has been recorded
+         */
+        public long getValueAtPercentile(double percentile) {
+            long rank = (long)Math.ceil(percentile / 100.0 * count);
+            long seen = 0;
+            
+            for(int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if(seen >= rank && counts[i] > 0) {
+                    return Math.min(lowerBoundOf(i), max);
+                }
+            }
+            
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import java.util.Arrays;
+
+/**
+ * Re-evaluates a set of candidate gestures while the stroke is still being
+ * drawn. Every so often each live candidate is run against the stroke so
+ * far, with the end of the buffered events standing in for the end of
+ * input. A candidate that fails without reaching that end cannot be rescued
+ * by more events and is pruned; if every candidate is pruned the matcher
+ * fails without waiting for the rest of the stroke. The result of the best
+ * candidate accepting the stroke so far is reported as a preview. Candidates
+ * that measure the whole stroke before matching it, like a
+ * {@link GestureRegistry}, see that the input is a {@link PartialInput}.
+ * 
+ * Candidates are plain matchers that cannot be resumed, so each evaluation
+ * reads the stroke from its start. Evaluations are therefore spaced out as
+ * the stroke grows: the first comes after step events, and each one after
+ * that once the stroke has grown by half since the last. That keeps the
+ * events read over all evaluations within a small multiple of the length of
+ * the stroke, where evaluating every step events would grow with its square.
+ * 
+ * As the candidates go back to the start of the stroke, all of it is kept,
+ * up to a maximum lookback like that of {@link RecoverablePenInput}. Longer
+ * strokes fail with a {@link LookbackExceededException}.
+ *
+ * @author jakob
+ */
+public class IncrementalMatcher implements Matcher {
+    public interface Listener {
+        void progressed(MatchProgress[] progress, Object preview);
+    }
+    
+    private final Canvas canvas;
+    private final MatcherFactory[] candidates;
+    private final int x;
+    private final int y;
+    private final int step;
+    private final Listener listener;
+    private final MatchProgress[] progress;
+    private final Object[] results;
+    private final PrefixInput prefix;
+
+    public IncrementalMatcher(MatcherFactory[] candidates, int x, int y, int step, Listener listener) {
+        this(null, candidates, x, y, step, listener);
+    }
+
+    /**
+     * @param canvas passed on to the candidates; may be null
+     */
+    public IncrementalMatcher(Canvas canvas, MatcherFactory[] candidates, int x, int y, int step, Listener listener) {
+        this(canvas, candidates, x, y, step, RecoverablePenInput.DEFAULT_MAX_LOOKBACK, listener);
+    }
+
+    /**
+     * @param maxLookback the number of events of a stroke kept at most
+     */
+    public IncrementalMatcher(Canvas canvas, MatcherFactory[] candidates, int x, int y, int step, int maxLookback, Listener listener) {
+        this.canvas = canvas;
+        this.candidates = candidates;
+        this.x = x;
+        this.y = y;
+        this.step = step;
+        this.listener = listener;
+        progress = new MatchProgress[candidates.length];
+        results = new Object[candidates.length];
+        prefix = new PrefixInput(maxLookback);
+    }
+    
+    public static MatcherFactory fromLocation(int step, Listener listener, MatcherFactory... candidates) {
+        return new MatcherFactory() {
+            @Override
+            public Matcher fromLocation(int x, int y) {
+                return fromLocation(null, x, y);
+            }
+
+            @Override
+            public Matcher fromLocation(Canvas canvas, int x, int y) {
+                return new IncrementalMatcher(canvas, candidates, x, y, step, listener);
+            }
+        };
+    }
+
+    // When to evaluate next after having evaluated at the given size
+    private int nextEvaluation(int size) {
+        return Math.max(size + step, size + size / 2);
+    }
+
+    @Override
+    public Object match(Input input) throws InterruptedException {
+        PenInput source = PenInputs.asPenInput(input);
+        prefix.cancellation = source.getCancellation();
+        Arrays.fill(progress, MatchProgress.POSSIBLE);
+        int evaluateAt = step;
+        
+        while(!source.atEnd()) {
+            prefix.append(source.peekKind(), source.peekX(), source.peekY(), source.peekTime());
+            source.skip();
+            
+            if(prefix.size == evaluateAt) {
+                evaluateAt = nextEvaluation(prefix.size);
+                
+                if(evaluate() == 0) {
+                    listener.progressed(progress, null);
+                    return null;
+                }
+                
+                listener.progressed(progress, preview());
+            }
+        }
+        
+        prefix.complete = true;
+        evaluate();
+        listener.progressed(progress, null);
+        
+        return preview();
+    }
+    
+    private int evaluate() throws InterruptedException {
+        int live = 0;
+        
+        for(int i = 0; i < candidates.length; i++) {
+            if(progress[i] == MatchProgress.IMPOSSIBLE) {
+                continue;
+            }
+            
+            prefix.cancellation.throwIfCancelled();
+            prefix.rewind();
+            Object result = candidates[i].fromLocation(canvas, x, y).match(prefix);
+            results[i] = result;
+            
+            if(result != null) {
+                progress[i] = MatchProgress.ACCEPTED;
+            } else if(prefix.starved && !prefix.complete) {
+                progress[i] = MatchProgress.POSSIBLE;
+            } else {
+                progress[i] = MatchProgress.IMPOSSIBLE;
+            }
+            
+            if(progress[i] != MatchProgress.IMPOSSIBLE) {
+                live++;
+            }
+        }
+        
+        return live;
+    }
+    
+    private Object preview() {
+        for(int i = 0; i < candidates.length; i++) {
+            if(progress[i] == MatchProgress.ACCEPTED) {
+                return results[i];
+            }
+        }
+        
+        return null;
+    }
+    
+    private static class PrefixInput implements PartialInput {
+        private final int maxSize;
+        private int[] kinds = new int[64];
+        private int[] xs = new int[64];
+        private int[] ys = new int[64];
+        private long[] times = new long[64];
+        private int size;
+        private int position;
+        private boolean starved;
+        private boolean complete;
+        private Cancellation cancellation = Cancellation.NONE;
+
+        PrefixInput(int maxSize) {
+            this.maxSize = maxSize;
+        }
+        
+        void append(int kind, int x, int y, long time) {
+            if(size == maxSize) {
+                throw new LookbackExceededException("Cannot keep more than " + maxSize + " events of a stroke to evaluate it again.");
+            }
+            if(size == kinds.length) {
+                int capacity = (int)Math.min(size * 2L, maxSize);
+                kinds = Arrays.copyOf(kinds, capacity);
+                xs = Arrays.copyOf(xs, capacity);
+                ys = Arrays.copyOf(ys, capacity);
+                times = Arrays.copyOf(times, capacity);
+            }
+            kinds[size] = kind;
+            xs[size] = x;
+            ys[size] = y;
+            times[size] = time;
+            size++;
+        }
+        
+        void rewind() {
+            position = 0;
+            starved = false;
+        }
+        
+        private int slot() {
+            if(atEnd()) {
+                throw new IllegalStateException("End of input.");
+            }
+            
+            return position;
+        }
+
+        @Override
+        public int peekKind() {
+            return kinds[slot()];
+        }
+
+        @Override
+        public int peekX() {
+            return xs[slot()];
+        }
+
+        @Override
+        public int peekY() {
+            return ys[slot()];
+        }
+
+        @Override
+        public long peekTime() {
+            return times[slot()];
+        }
+
+        @Override
+        public void skip() {
+            if(!atEnd()) {
+                position++;
+            }
+        }
+
+        @Override
+        public boolean atEnd() {
+            if(position < size) {
+                return false;
+            }
+            
+            starved = true;
+            return true;
+        }
+
+        @Override
+        public InputState getState() {
+            int savedPosition = position;
+            
+            return () -> {
+                cancellation.throwIfCancelled();
+                position = savedPosition;
+            };
+        }
+
+        @Override
+        public Cancellation getCancellation() {
+            return cancellation;
+        }
+
+        @Override
+        public boolean isStarved() {
+            return starved;
+        }
+
+        @Override
+        public void setStarved(boolean starved) {
+            this.starved = starved;
+        }
+    }
+}
@@ -32,4 +32,37 @@ public interface Input {
     Object peek();
     boolean atEnd();
     InputState getState();
+    
+    /**
+     * What matchers reading this input check for being called off. Inputs
+     * wrapping another pass on its cancellation.
+     */
+    default Cancellation getCancellation() {
+        return Cancellation.NONE;
+    }
+    
+    /**
+     * Copies upcoming elements into batch without taking them: at least one
+     * unless at the end, at most batch.length. Inputs that can see further
+     * ahead than the next element copy as many as they have at hand.
+     * 
+     * @return the number of elements copied
+     */
+    default int fill(Object[] batch) {
+        if(atEnd()) {
+            return 0;
+        }
+        batch[0] = peek();
+        return 1;
+    }
+    
+    /**
+     * Takes count elements, e.g. after looking at them with
+     * {@link #fill(Object[])}.
+     */
+    default void skip(int count) {
+        for(int i = 0; i < count; i++) {
+            take();
+        }
+    }
 }
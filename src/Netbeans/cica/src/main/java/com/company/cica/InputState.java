@@ -24,9 +24,15 @@
 package com.company.cica;
 
 /**
+ * A saved position of an {@link Input} that it can be recovered to any
+ * number of times. Inputs may hold on to what was read since the position
+ * until the state is discarded, so discard it once it is no longer needed.
  *
  * @author jakob
  */
 public interface InputState {
     void recover();
+    
+    default void discard() {
+    }
 }
@@ -68,6 +68,14 @@ public class Inputs {
                 }
             }
 
+            @Override
+            public void skip(int count) {
+                for(int i = 0; i < count; i++) {
+                    ensureCurrentSet();
+                    shouldTake = true;
+                }
+            }
+
             @Override
             public InputState getState() {
                 throw new UnsupportedOperationException("Input is not recoverable.");
@@ -75,45 +83,110 @@ public class Inputs {
         };
     }
     
+    /**
+     * Buffers everything taken from the input for as long as the input is
+     * used, so any state can be recovered. Use the bounded overload for
+     * inputs that may go on for long.
+     */
     public static Input toRecoverable(Input input) {
+        return toRecoverable(input, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Buffers what is taken from the input so it can be recovered, keeping
+     * the last maxLookback objects at most. Recovering a state from before
+     * them fails with a {@link LookbackExceededException}.
+     */
+    public static Input toRecoverable(Input input, int maxLookback) {
         return new Input() {
-            private ArrayList<Object> buffer = new ArrayList<>();
+            private Object[] buffer = new Object[Math.min(64, maxLookback)];
+            // Absolute indexes; buffered are [base, end)
+            private int base;
+            private int end;
             private int index;
 
             @Override
             public InputState getState() {
                 int savedIndex = index;
                 
-                return () -> this.index = savedIndex;
+                return () -> {
+                    input.getCancellation().throwIfCancelled();
+                    if(savedIndex - base < 0) {
+                        throw new LookbackExceededException("Cannot recover " + savedIndex + "; objects before " + base + " have been let go.");
+                    }
+                    this.index = savedIndex;
+                };
+            }
+
+            @Override
+            public Cancellation getCancellation() {
+                return input.getCancellation();
             }
 
             @Override
             public Object take() {
                 ensureBuffered(index);
-                Object o = buffer.get(index);
+                Object o = buffer[Integer.remainderUnsigned(index, buffer.length)];
                 index++;
                 return o;
             }
             
             private void ensureBuffered(int index) {
-                while(buffer.size() <= index) {
+                while(end - index <= 0) {
                     if(!input.atEnd()) {
-                        buffer.add(input.take());
+                        append(input.take());
                     } else {
                         return;
                     }
                 }
             }
+            
+            private void append(Object o) {
+                if(end - base == buffer.length) {
+                    if(buffer.length < maxLookback) {
+                        Object[] newBuffer = new Object[(int)Math.min((long)buffer.length * 2, maxLookback)];
+                        for(int i = base; i != end; i++) {
+                            newBuffer[Integer.remainderUnsigned(i, newBuffer.length)] = buffer[Integer.remainderUnsigned(i, buffer.length)];
+                        }
+                        buffer = newBuffer;
+                    } else {
+                        buffer[Integer.remainderUnsigned(base, buffer.length)] = null;
+                        base++;
+                    }
+                }
+                buffer[Integer.remainderUnsigned(end, buffer.length)] = o;
+                end++;
+            }
 
             @Override
             public Object peek() {
-                return buffer.get(index);
+                ensureBuffered(index);
+                return buffer[Integer.remainderUnsigned(index, buffer.length)];
             }
 
             @Override
             public boolean atEnd() {
                 ensureBuffered(index);
-                return index >= buffer.size();
+                return end - index <= 0;
+            }
+
+            @Override
+            public int fill(Object[] batch) {
+                if(atEnd()) {
+                    return 0;
+                }
+                
+                int count = Math.min(end - index, batch.length);
+                for(int i = 0; i < count; i++) {
+                    batch[i] = buffer[Integer.remainderUnsigned(index + i, buffer.length)];
+                }
+                return count;
+            }
+
+            @Override
+            public void skip(int count) {
+                ensureBuffered(index + count - 1);
+                index += Math.min(count, end - index);
             }
         };
     }
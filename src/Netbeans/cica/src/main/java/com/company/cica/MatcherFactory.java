@@ -29,4 +29,13 @@ package com.company.cica;
  */
 public interface MatcherFactory {
     Matcher fromLocation(int x, int y);
+    
+    /**
+     * Creates a matcher for a stroke starting at a location on a canvas, so
+     * the gesture may depend on what is already drawn there. The canvas is
+     * only to be queried and may be null.
+     */
+    default Matcher fromLocation(Canvas canvas, int x, int y) {
+        return fromLocation(x, y);
+    }
 }
@@ -0,0 +1,688 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ *
+ * @author jakob
+ */
+class Matchers {
+    private static final Logger LOGGER = Logger.getLogger(Matchers.class.getName());
+    
+    public static Matcher canvasDrawing(CanvasPanel canvasPanel, MatcherFactory matcherFactory) {
+        return strokes(new RecognitionEngine(new MatcherFactory[] {matcherFactory}, 0, null, new CanvasRenderer(canvasPanel)));
+    }
+    
+    public static Matcher strokes(PenSessionEngine.StrokeRecognizer strokeRecognizer) {
+        return new Matcher() {
+            @Override
+            public Object match(Input input) throws InterruptedException {
+                PenInput penInput = PenInputs.asPenInput(input);
+                
+                while(!penInput.atEnd()) {
+                    if(penInput.peekKind() == PenEvents.DOWN) {
+                        int pointer = penInput.peekPointer();
+                        int x = penInput.peekX();
+                        int y = penInput.peekY();
+                        penInput.skip();
+                        
+                        strokeRecognizer.recognize(pointer, x, y, penInput);
+                    } else {
+                        penInput.skip();
+                    }
+                }
+                
+                return null;
+            }
+        };
+    }
+    
+    static class LineSegment {
+        final int x1;
+        final int y1;
+        final int x2;
+        final int y2;
+        // Computed on first use
+        private double direction = Double.NaN;
+        private double distance = Double.NaN;
+
+        public LineSegment(int x1, int y1, int x2, int y2) {
+            this.x1 = x1;
+            this.y1 = y1;
+            this.x2 = x2;
+            this.y2 = y2;
+        }
+        
+        public double direction() {
+            if(Double.isNaN(direction)) {
+                direction = Geometry.direction(x1, y1, x2, y2);
+            }
+            return direction;
+        }
+        
+        public double distance() {
+            if(Double.isNaN(distance)) {
+                distance = Geometry.distance(x1, y1, x2, y2);
+            }
+            return distance;
+        }
+    }
+    
+    public static Matcher lineSegmentMatcher(int x1, int y1) {
+        return new Matcher() {
+            @Override
+            public Object match(Input input) throws InterruptedException {
+                return lineSegment(PenInputs.asPenInput(input), new PenBatch(16), x1, y1);
+            }
+        };
+    }
+    
+    // Reads the moves up to the first one more than 10 away from (x1, y1),
+    // or up to the end of input, a batch at a time
+    private static LineSegment lineSegment(PenInput input, PenBatch batch, int x1, int y1) {
+        int count;
+        
+        while((count = input.fill(batch)) > 0) {
+            for(int i = 0; i < count; i++) {
+                if(batch.kind(i) != PenEvents.MOVED) {
+                    input.skip(i);
+                    return null;
+                }
+                
+                int dx = x1 - batch.x(i);
+                int dy = y1 - batch.y(i);
+                
+                // Same as (int)Math.hypot(dx, dy) > 10
+                if(dx * dx + dy * dy >= 121) {
+                    input.skip(i + 1);
+                    return new LineSegment(x1, y1, batch.x(i), batch.y(i));
+                }
+            }
+            
+            input.skip(count);
+            if(input.atEnd()) {
+                return new LineSegment(x1, y1, batch.x(count - 1), batch.y(count - 1));
+            }
+        }
+        
+        return null;
+    }
+    
+    private interface LineSegmentSequenceStrategy {
+        boolean nextSegment(int x1, int y1, int x2, int y2);
+        Object reduce();
+    }
+    
+    private static final int SEGMENT_SEQUENCE_RULE = 1;
+    
+    public static Matcher lineStrategy(int x1, int y1) {
+        return lineStrategy(null, x1, y1);
+    }
+    
+    public static Matcher lineStrategy(MemoTable memoTable, int x1, int y1) {
+        return seq(memoizedLineSegmentSequenceMatcher(memoTable, x1, y1), eoi(), (line, t) -> line);
+    }
+    
+    private static Matcher memoizedLineSegmentSequenceMatcher(MemoTable memoTable, int x1, int y1) {
+        return memo(memoTable, MemoTable.id(SEGMENT_SEQUENCE_RULE, x1, y1), lineSegmentSequenceMatcher(x1, y1, lineLineSegmentSequenceStrategy()));
+    }
+    
+    private static double distanceAngles(double alpha, double beta) {
+        double phi = Math.abs(beta - alpha) % 360;       // This is either the distance or 360 - distance
+        double distance = phi > 180 ? 360 - phi : phi;
+        return distance;
+    }
+    
+    private static SequenceMatcherFactory rectLineMatcherFactory(MemoTable memoTable, int x1Orig, int y1Orig) {
+        return l -> {
+            int x1;
+            int y1;
+            
+            if(l.isEmpty()) {
+                x1 = x1Orig;
+                y1 = y1Orig;
+            } else {
+                LineSegment lastLine = (LineSegment) l.get(l.size() - 1);
+                
+                x1 = lastLine.x2;
+                y1 = lastLine.y2;
+                
+                if(l.size() > 1) {
+                    LineSegment prevLine = (LineSegment) l.get(l.size() - 2);
+                    
+                    double directionDelta = angleDeltaC(prevLine.direction(), lastLine.direction());
+                    if(LOGGER.isLoggable(Level.FINEST)) {
+                        LOGGER.finest("rectLineMatcherFactory/directionDelta=" + directionDelta);
+                    }
+                    
+                    if(directionDelta < 15 || directionDelta > 180) {
+                        return null;
+                    }
+                }
+            }
+            
+            return memoizedLineSegmentSequenceMatcher(memoTable, x1, y1);
+        };
+    }
+    
+    public static Matcher rectStrategy(int x1, int y1) {
+        return rectStrategy(null, x1, y1);
+    }
+    
+    public static Matcher rectStrategy(MemoTable memoTable, int x1, int y1) {
+        return seq(
+            Arrays.<SequenceMatcherFactory>asList(
+                rectLineMatcherFactory(memoTable, x1, y1),
+                rectLineMatcherFactory(memoTable, x1, y1),
+                rectLineMatcherFactory(memoTable, x1, y1),
+                rectLineMatcherFactory(memoTable, x1, y1),
+                l -> eoi(),
+                l -> {
+                    LineSegment firstLine = (LineSegment) l.get(0);
+                    LineSegment lastLine = (LineSegment) l.get(3);
+                    
+                    LineSegment diagonalLine = new LineSegment(
+                        firstLine.x2, firstLine.y2,
+                        lastLine.x1, lastLine.y1);
+                    double maxDelta = diagonalLine.distance() * 0.25;
+                    
+                    int deltaX = Math.abs(firstLine.x1 - lastLine.x2);
+                    int deltaY = Math.abs(firstLine.y1 - lastLine.y2);
+                    
+                    if(deltaX > maxDelta || deltaY > maxDelta) {
+                        return f();
+                    }
+                    
+                    return t();
+                }
+            ), 
+            l -> {
+                return l;
+            }
+        );
+    }
+    
+    public static Matcher t() {
+        return new Matcher() {
+            @Override
+            public Object match(Input input) throws InterruptedException {
+                return true;
+            }
+        };
+    }
+    
+    public static Matcher f() {
+        return new Matcher() {
+            @Override
+            public Object match(Input input) throws InterruptedException {
+                return null;
+            }
+        };
+    }
+    
+    public interface SequenceMatcherFactory {
+        Matcher createMatcher(List<Object> list);
+    }
+    
+    public static Matcher seq(List<SequenceMatcherFactory> factories, Function<List<Object>, Object> reduction) {
+        return new Matcher() {
+            @Override
+            public Object match(Input input) throws InterruptedException {
+                ArrayList<Object> list = new ArrayList<>();
+                Cancellation cancellation = input.getCancellation();
+                
+                for(SequenceMatcherFactory f: factories) {
+                    cancellation.throwIfCancelled();
+                    Matcher m = f.createMatcher(list);
+                    if(m == null) {
+                        return null;
+                    }
+                    Object o = m.match(input);
+                    if(o != null) {
+                        list.add(o);
+                    } else {
+                        return null;
+                    }
+                }
+                
+                return reduction.apply(list);
+            }
+        };
+    }
+    
+    public static Matcher seq(Matcher m1, Matcher m2, BiFunction<Object, Object, Object> reduction) {
+        return new Matcher() {
+            @Override
+            public Object match(Input input) throws InterruptedException {
+                Object m1Result = m1.match(input);
+                if(m1Result != null) {
+                    Object m2Result = m2.match(input);
+                    if(m2Result != null) {
+                        return reduction.apply(m1Result, m2Result);
+                    }
+                }
+                
+                return null;
+            }
+        };
+    }
+    
+    public static Matcher alt(Matcher... alternatives) {
+        return new Matcher() {
+            @Override
+            public Object match(Input input) throws InterruptedException {
+                Cancellation cancellation = input.getCancellation();
+                
+                if(input instanceof RecoverablePenInput) {
+                    RecoverablePenInput recoverable = (RecoverablePenInput) input;
+                    int mark = recoverable.mark();
+                    
+                    try {
+                        for(Matcher alternative: alternatives) {
+                            cancellation.throwIfCancelled();
+                            Object result = alternative.match(input);
+                            if(result != null) {
+                                return result;
+                            }
+                            recoverable.reset(mark);
+                        }
+                    } finally {
+                        recoverable.release(mark);
+                    }
+                    
+                    return null;
+                }
+                
+                InputState state = input.getState();
+                
+                try {
+                    for(Matcher alternative: alternatives) {
+                        cancellation.throwIfCancelled();
+                        Object result = alternative.match(input);
+                        if(result != null) {
+                            return result;
+                        }
+                        state.recover();
+                    }
+                } finally {
+                    state.discard();
+                }
+                
+                return null;
+            }
+        };
+    }
+    
+    public static Matcher memo(MemoTable memoTable, long id, Matcher matcher) {
+        if(memoTable == null) {
+            return matcher;
+        }
+        
+        return new Matcher() {
+            @Override
+            public Object match(Input input) throws InterruptedException {
+                if(!(input instanceof RecoverablePenInput)) {
+                    return matcher.match(input);
+                }
+                
+                RecoverablePenInput recoverable = (RecoverablePenInput) input;
+                int start = recoverable.position();
+                int slot = memoTable.find(id, start);
+                
+                if(slot != -1) {
+                    recoverable.reset(memoTable.end(slot));
+                    return memoTable.result(slot);
+                }
+                
+                Object result = matcher.match(input);
+                memoTable.put(id, start, recoverable.position(), result);
+                return result;
+            }
+        };
+    }
+    
+    public static Matcher eoi() {
+        return new Matcher() {
+            @Override
+            public Object match(Input input) throws InterruptedException {
+                if(input.atEnd()) {
+                    return true;
+                }
+                
+                return null;
+            }
+        };
+    }
+    
+    public static LineSegmentSequenceStrategy lineLineSegmentSequenceStrategy() {
+        return new LineSegmentSequenceStrategy() {
+            // Only the ends of the line and the direction of its first
+            // segment matter
+            private boolean started;
+            private int startX;
+            private int startY;
+            private int endX;
+            private int endY;
+            private double referenceDirection;
+            
+            @Override
+            public boolean nextSegment(int x1, int y1, int x2, int y2) {
+                double direction = Geometry.direction(x1, y1, x2, y2);
+                
+                if(!started) {
+                    started = true;
+                    startX = x1;
+                    startY = y1;
+                    referenceDirection = direction;
+                } else if(Geometry.deviation(referenceDirection, direction) > 30.0) {
+                    return false;
+                }
+                
+                endX = x2;
+                endY = y2;
+                return true;
+            }
+
+            @Override
+            public Object reduce() {
+                return new LineSegment(startX, startY, endX, endY);
+            }
+        };
+    }
+    
+    public static Matcher lineSegmentSequenceMatcher(int x1, int y1, LineSegmentSequenceStrategy strategy) {
+        return new Matcher() {
+            @Override
+            public Object match(Input input) throws InterruptedException {
+                ArrayList<LineSegment> segments = new ArrayList<>();
+                PenInput penInput = PenInputs.asPenInput(input);
+                PenBatch batch = new PenBatch(64);
+                
+                LineSegment firstSegment = lineSegment(penInput, batch, x1, y1);
+                
+                if(firstSegment != null && strategy.nextSegment(firstSegment.x1, firstSegment.y1, firstSegment.x2, firstSegment.y2)) {
+                    segments.add(firstSegment);
+                    
+                    while(!penInput.atEnd()) {
+                        LineSegment prevSegment = segments.get(segments.size() - 1);
+                
+                        LineSegment nextSegment = lineSegment(penInput, batch, prevSegment.x2, prevSegment.y2);
+                        
+                        if(nextSegment != null) {
+                            if(!strategy.nextSegment(nextSegment.x1, nextSegment.y1, nextSegment.x2, nextSegment.y2)) {
+                                break;
+                            }
+                            segments.add(nextSegment);
+                        } else {
+                            break;
+                        }
+                    }
+                
+                    return strategy.reduce();
+                }
+                
+                return null;
+            }
+        };
+    }
+    
+    public static Matcher lineCanvasActionMatcher(int x1, int y1) {
+        return lineCanvasActionMatcher(null, x1, y1);
+    }
+    
+    public static Matcher lineCanvasActionMatcher(MemoTable memoTable, int x1, int y1) {
+        Matcher lineMatcher = lineStrategy(memoTable, x1, y1);
+        
+        return new Matcher() {
+            @Override
+            public Object match(Input input) throws InterruptedException {
+                LineSegment line = (LineSegment) lineMatcher.match(input);
+                if(line != null) {
+                    return new CanvasAction() {
+                        @Override
+                        public void perform(Canvas canvas) {
+                            Drawing drawing = canvas.newDrawing(line.x1, line.y1);
+                            drawing.moveTo(line.x2, line.y2);
+                        }
+                    };
+                }
+                return null;
+            }
+        };
+    }
+    
+    public static Matcher rectCanvasActionMatcher(int x1, int y1) {
+        return rectCanvasActionMatcher(null, x1, y1);
+    }
+    
+    public static Matcher rectCanvasActionMatcher(MemoTable memoTable, int x1, int y1) {
+        Matcher rectMatcher = rectStrategy(memoTable, x1, y1);
+        
+        return new Matcher() {
+            @Override
+            public Object match(Input input) throws InterruptedException {
+                List<Object> lines = (List<Object>) rectMatcher.match(input);
+                if(lines != null) {
+                    return new CanvasAction() {
+                        @Override
+                        public void perform(Canvas canvas) {
+                            LineSegment firstLine = (LineSegment) lines.get(0);
+                            Drawing drawing = canvas.newDrawing(firstLine.x1, firstLine.y1);
+                            drawing.moveTo(firstLine.x2, firstLine.y2);
+                            for(int i = 1; i < 3; i++) {
+                                LineSegment nextLine = (LineSegment) lines.get(i);
+                                drawing.moveTo(nextLine.x2, nextLine.y2);
+                            }
+                            drawing.moveTo(firstLine.x1, firstLine.y1);
+                        }
+                    };
+                }
+                return null;
+            }
+        };
+    }
+    
+    public static Matcher packratCanvasActionMatcher(int x1, int y1) {
+        return packratCanvasActionMatcher(new MemoTable(256), x1, y1);
+    }
+    
+    /**
+     * Rectangles and lines, sharing the line segments matched at a position
+     * through a memo table for the stroke.
+     */
+    public static Matcher packratCanvasActionMatcher(MemoTable memoTable, int x1, int y1) {
+        return alt(
+            rectCanvasActionMatcher(memoTable, x1, y1),
+            lineCanvasActionMatcher(memoTable, x1, y1)
+        );
+    }
+    
+    private static final StrokeAutomaton LINE_AUTOMATON = StrokeAutomaton.builder()
+        .leg()
+        .build();
+    
+    // Like rectStrategy, which checks the turns into the second and third
+    // legs but not into the last one
+    private static final StrokeAutomaton RECT_AUTOMATON = StrokeAutomaton.builder()
+        .leg()
+        .leg(15, 180)
+        .leg(15, 180)
+        .leg()
+        .closed(0.25)
+        .build();
+    
+    public static Matcher compiledLineCanvasActionMatcher(int x1, int y1) {
+        return LINE_AUTOMATON.matcher(x1, y1, (xs, ys) -> new CanvasAction() {
+            @Override
+            public void perform(Canvas canvas) {
+                Drawing drawing = canvas.newDrawing(xs[0], ys[0]);
+                drawing.moveTo(xs[1], ys[1]);
+            }
+        });
+    }
+    
+    public static Matcher compiledRectCanvasActionMatcher(int x1, int y1) {
+        return RECT_AUTOMATON.matcher(x1, y1, (xs, ys) -> new CanvasAction() {
+            @Override
+            public void perform(Canvas canvas) {
+                Drawing drawing = canvas.newDrawing(xs[0], ys[0]);
+                for(int i = 1; i < 4; i++) {
+                    drawing.moveTo(xs[i], ys[i]);
+                }
+                drawing.moveTo(xs[0], ys[0]);
+            }
+        });
+    }
+    
+    private static CanvasAction lineFromEnds(int[] xs, int[] ys) {
+        return canvas -> {
+            Drawing drawing = canvas.newDrawing(xs[0], ys[0]);
+            drawing.moveTo(xs[xs.length - 1], ys[ys.length - 1]);
+        };
+    }
+    
+    private static CanvasAction rectFromBounds(int[] xs, int[] ys) {
+        int minX = Integer.MAX_VALUE;
+        int minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        int maxY = Integer.MIN_VALUE;
+        for(int i = 0; i < xs.length; i++) {
+            minX = Math.min(minX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxX = Math.max(maxX, xs[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+        int[] corners = {minX, minY, maxX, minY, maxX, maxY, minX, maxY};
+        
+        return canvas -> {
+            Drawing drawing = canvas.newDrawing(corners[0], corners[1]);
+            for(int i = 2; i < corners.length; i += 2) {
+                drawing.moveTo(corners[i], corners[i + 1]);
+            }
+            drawing.moveTo(corners[0], corners[1]);
+        };
+    }
+    
+    private static CanvasAction polygonFromCorners(int[] xs, int[] ys) {
+        return canvas -> {
+            Drawing drawing = canvas.newDrawing(xs[0], ys[0]);
+            for(int i = 1; i < xs.length; i++) {
+                drawing.moveTo(xs[i], ys[i]);
+            }
+            drawing.moveTo(xs[0], ys[0]);
+        };
+    }
+    
+    public static Shapes.Shape rectShape() {
+        return Shapes.rectangle(Matchers::polygonFromCorners);
+    }
+    
+    public static Shapes.Shape triangleShape() {
+        return Shapes.triangle(Matchers::polygonFromCorners);
+    }
+    
+    public static Shapes.Shape lineShape() {
+        return Shapes.line(Matchers::lineFromEnds);
+    }
+    
+    /**
+     * Rectangles, triangles and lines, all read off one graph of the stroke.
+     */
+    public static Matcher shapeCanvasActionMatcher(int x1, int y1) {
+        return Shapes.matcher(x1, y1, rectShape(), triangleShape(), lineShape());
+    }
+    
+    // Rectangles are drawn either way round; where they start does not
+    // matter once the templates are rotated to their indicative angle
+    private static final TemplateRecognizer TEMPLATES = TemplateRecognizer.builder()
+        .template(new int[] {0, 100}, new int[] {0, 0}, Matchers::lineFromEnds)
+        .template(new int[] {0, 100, 100, 0, 0}, new int[] {0, 0, 100, 100, 0}, Matchers::rectFromBounds)
+        .template(new int[] {0, 0, 100, 100, 0}, new int[] {0, 100, 100, 0, 0}, Matchers::rectFromBounds)
+        .build();
+    
+    public static Matcher templateCanvasActionMatcher(int x1, int y1) {
+        return TEMPLATES.matcher(x1, y1);
+    }
+    
+    public static Matcher rectMatcher(int x1, int y1) {
+        return new Matcher() {
+            @Override
+            public Object match(Input input) throws InterruptedException {
+                ArrayList<LineSegment> lines = new ArrayList<>();
+                
+                LineSegment line = (LineSegment) lineSegmentMatcher(x1, y1).match(input);
+                
+                if(line != null) {
+                    lines.add(line);
+                    
+                    double lastDirection = line.direction();
+                    
+                    for(int i = 1; i < 4; i++) {
+                        line = (LineSegment) lineSegmentMatcher(x1, y1).match(input);
+                        
+                        if(line != null) {
+                            lines.add(line);
+                            
+                            double newDirection = line.direction();
+                        } else {
+                            return null;
+                        }
+                    }
+                } else {
+                    return null;
+                }
+                
+                return null;
+            }
+        };
+    }
+    
+    static double angleDeltaC(double angle1, double angle2) {
+        return Geometry.turn(angle1, angle2);
+    }
+    
+    static double angleDeltaCC(double angle1, double angle2) {
+        return angleDeltaCC(angle1, angle2, -180, 180);
+    }
+    
+    static double angleDeltaC(double angle1, double angle2, double min, double max) {
+        if(angle1 > angle2) {
+            angle2 += (max - min);
+        }
+        
+        return angle2 - angle1;
+    }
+    
+    static double angleDeltaCC(double angle1, double angle2, double min, double max) {
+        return angleDeltaC(angle2, angle1);
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+/**
+ * Packrat memo of matcher results keyed by matcher id and input position.
+ * The table is direct mapped with a fixed number of slots, so a new entry
+ * simply evicts whatever entry shared its slot and memory stays bounded no
+ * matter how long the stroke is.
+ *
+ * @author jakob
+ */
+public class MemoTable {
+    private final long[] ids;
+    private final int[] positions;
+    private final int[] ends;
+    private final Object[] results;
+    private final boolean[] used;
+    private final int mask;
+    private int hits;
+    private int misses;
+
+    public MemoTable(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        ids = new long[size];
+        positions = new int[size];
+        ends = new int[size];
+        results = new Object[size];
+        used = new boolean[size];
+        mask = size - 1;
+    }
+    
+    public static long id(int rule, int x, int y) {
+        return ((long)rule << 48) ^ ((long)(x & 0xffffff) << 24) ^ (y & 0xffffff);
+    }
+    
+    private int slot(long id, int position) {
+        long h = id * 0x9E3779B97F4A7C15L + position;
+        return (int)(h ^ (h >>> 29)) & mask;
+    }
+    
+    /**
+     * Returns the slot holding the entry for the given key, or -1.
+     */
+    public int find(long id, int position) {
+        int slot = slot(id, position);
+        
+        if(used[slot] && ids[slot] == id && positions[slot] == position) {
+            hits++;
+            return slot;
+        }
+        
+        misses++;
+        return -1;
+    }
+    
+    public Object result(int slot) {
+        return results[slot];
+    }
+    
+    public int end(int slot) {
+        return ends[slot];
+    }
+    
+    public void put(long id, int position, int end, Object result) {
+        int slot = slot(id, position);
+        used[slot] = true;
+        ids[slot] = id;
+        positions[slot] = position;
+        ends[slot] = end;
+        results[slot] = result;
+    }
+    
+    public void clear() {
+        for(int i = 0; i < used.length; i++) {
+            used[i] = false;
+            results[i] = null;
+        }
+    }
+
+    public int getHits() {
+        return hits;
+    }
+
+    public int getMisses() {
+        return misses;
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+/**
+ * The events of a stroke so far, as an {@link IncrementalMatcher} hands them
+ * to its candidates before the pen is lifted. A candidate that reaches the
+ * end of them is taken to be undecided, as more events might still let it
+ * succeed, and one that fails without reaching it is pruned.
+ * 
+ * A matcher that reads ahead only to measure the stroke, and then matches it
+ * from where it was, puts back whether the end had been reached before. It
+ * then reports for itself whether what it measured leaves it undecided.
+ *
+ * @author jakob
+ */
+public interface PartialInput extends PenInput {
+    /**
+     * Whether the end of the events so far has been reached since the
+     * candidate started reading.
+     */
+    boolean isStarved();
+    
+    void setStarved(boolean starved);
+}
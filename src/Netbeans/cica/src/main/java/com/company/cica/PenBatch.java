@@ -0,0 +1,115 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import java.util.Arrays;
+
+/**
+ * Caller supplied block of pen events for {@link PenInput#fill(PenBatch)}.
+ * Reading a batch is a loop over plain arrays instead of a number of
+ * interface calls per event.
+ *
+ * @author jakob
+ */
+public final class PenBatch {
+    private final int[] kinds;
+    private final int[] pointers;
+    private final int[] xs;
+    private final int[] ys;
+    private final long[] times;
+    private int size;
+
+    public PenBatch(int capacity) {
+        kinds = new int[capacity];
+        pointers = new int[capacity];
+        xs = new int[capacity];
+        ys = new int[capacity];
+        times = new long[capacity];
+    }
+    
+    public int capacity() {
+        return kinds.length;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public int kind(int index) {
+        return kinds[index];
+    }
+    
+    public int pointer(int index) {
+        return pointers[index];
+    }
+    
+    public int x(int index) {
+        return xs[index];
+    }
+    
+    public int y(int index) {
+        return ys[index];
+    }
+    
+    public long time(int index) {
+        return times[index];
+    }
+    
+    public void clear() {
+        size = 0;
+    }
+    
+    public void add(int kind, int pointer, int x, int y, long time) {
+        kinds[size] = kind;
+        pointers[size] = pointer;
+        xs[size] = x;
+        ys[size] = y;
+        times[size] = time;
+        size++;
+    }
+    
+    /**
+     * Replaces the contents with count events copied from parallel arrays,
+     * starting at offset.
+     */
+    public void set(int[] kinds, int[] pointers, int[] xs, int[] ys, long[] times, int offset, int count) {
+        System.arraycopy(kinds, offset, this.kinds, 0, count);
+        if(pointers != null) {
+            System.arraycopy(pointers, offset, this.pointers, 0, count);
+        } else {
+            Arrays.fill(this.pointers, 0, count, 0);
+        }
+        System.arraycopy(xs, offset, this.xs, 0, count);
+        System.arraycopy(ys, offset, this.ys, 0, count);
+        System.arraycopy(times, offset, this.times, 0, count);
+        size = count;
+    }
+    
+    /**
+     * Drops the events from index on.
+     */
+    public void truncate(int index) {
+        size = Math.min(size, index);
+    }
+}
@@ -0,0 +1,406 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fixed size ring of pen events stored in parallel primitive arrays. Exactly
+ * one thread offers events and exactly one thread reads them, either one at a
+ * time through {@link #input()} or in batches through {@link #drain}; the two
+ * sides only synchronize through the head and tail sequences.
+ * 
+ * What happens when the ring is full is decided by the overflow policy:
+ * BLOCK makes the producer wait, DROP discards the event and counts it, and
+ * COALESCE never makes the producer wait, so it can be offered to from a UI
+ * thread. Under COALESCE moves may only fill the ring up to a headroom kept
+ * for pen downs and ups. Past that the latest move of a pointer is held
+ * outside the ring and replaced by each following move of the same pointer,
+ * while moves of other pointers are dropped and counted. Only once the
+ * headroom is used up as well are pen downs and ups dropped and counted;
+ * the sessions reading them take a pen down without a pen up before it as
+ * the end of the previous stroke.
+ *
+ * @author jakob
+ */
+public class PenEventBuffer {
+    public enum OverflowPolicy {
+        BLOCK,
+        COALESCE,
+        DROP
+    }
+    
+    public interface Sink {
+        void accept(int pointer, int kind, int x, int y, long time);
+    }
+    
+    private final int[] kinds;
+    private final int[] pointers;
+    private final int[] xs;
+    private final int[] ys;
+    private final long[] times;
+    private final int mask;
+    private final OverflowPolicy overflowPolicy;
+    // Slots moves leave free under COALESCE
+    private final int headroom;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private volatile boolean closed;
+    private volatile Thread waitingConsumer;
+    private volatile Thread waitingProducer;
+    private volatile long dropped;
+    private volatile long coalesced;
+    
+    // Only touched by the producer
+    private long cachedHead;
+    private boolean pending;
+    private int pendingPointer;
+    private int pendingX;
+    private int pendingY;
+    private long pendingTime;
+
+    public PenEventBuffer(int capacity) {
+        this(capacity, OverflowPolicy.DROP);
+    }
+
+    public PenEventBuffer(int capacity, OverflowPolicy overflowPolicy) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        kinds = new int[size];
+        pointers = new int[size];
+        xs = new int[size];
+        ys = new int[size];
+        times = new long[size];
+        mask = size - 1;
+        this.overflowPolicy = overflowPolicy;
+        headroom = overflowPolicy == OverflowPolicy.COALESCE ? Math.max(1, size / 4) : 0;
+    }
+    
+    public boolean offer(int kind, int x, int y, long time) {
+        return offer(0, kind, x, y, time);
+    }
+    
+    public boolean offer(int pointer, int kind, int x, int y, long time) {
+        if(closed) {
+            return false;
+        }
+        
+        switch(overflowPolicy) {
+            case BLOCK:
+                return put(pointer, kind, x, y, time);
+            case DROP:
+                if(!tryPut(pointer, kind, x, y, time)) {
+                    dropped++;
+                    return false;
+                }
+                return true;
+            default:
+                return offerCoalescing(pointer, kind, x, y, time);
+        }
+    }
+    
+    private boolean offerCoalescing(int pointer, int kind, int x, int y, long time) {
+        boolean move = kind == PenEvents.MOVED;
+        int limit = move ? kinds.length - headroom : kinds.length;
+        
+        if(pending) {
+            if(!move && free(limit) < 2) {
+                // Room for the pen down or up only; it supersedes the move
+                pending = false;
+                coalesced++;
+            } else if(tryPut(pendingPointer, PenEvents.MOVED, pendingX, pendingY, pendingTime, limit)) {
+                pending = false;
+            } else if(move && pointer == pendingPointer) {
+                pendingX = x;
+                pendingY = y;
+                pendingTime = time;
+                coalesced++;
+                return true;
+            } else {
+                dropped++;
+                return false;
+            }
+        }
+        
+        if(tryPut(pointer, kind, x, y, time, limit)) {
+            return true;
+        }
+        
+        if(move) {
+            pending = true;
+            pendingPointer = pointer;
+            pendingX = x;
+            pendingY = y;
+            pendingTime = time;
+            return true;
+        }
+        
+        dropped++;
+        return false;
+    }
+    
+    // How many of the first limit slots are free
+    private int free(int limit) {
+        cachedHead = head.get();
+        return (int)Math.max(limit - (tail.get() - cachedHead), 0);
+    }
+    
+    private boolean tryPut(int pointer, int kind, int x, int y, long time) {
+        return tryPut(pointer, kind, x, y, time, kinds.length);
+    }
+    
+    private boolean tryPut(int pointer, int kind, int x, int y, long time, int limit) {
+        long t = tail.get();
+        
+        if(t - cachedHead >= limit) {
+            cachedHead = head.get();
+            if(t - cachedHead >= limit) {
+                return false;
+            }
+        }
+        
+        int i = (int)t & mask;
+        pointers[i] = pointer;
+        kinds[i] = kind;
+        xs[i] = x;
+        ys[i] = y;
+        times[i] = time;
+        tail.set(t + 1);
+        
+        Thread consumer = waitingConsumer;
+        if(consumer != null) {
+            LockSupport.unpark(consumer);
+        }
+        
+        return true;
+    }
+    
+    private boolean put(int pointer, int kind, int x, int y, long time) {
+        while(!tryPut(pointer, kind, x, y, time)) {
+            if(closed) {
+                return false;
+            }
+            
+            waitingProducer = Thread.currentThread();
+            if(tail.get() - head.get() == kinds.length && !closed) {
+                LockSupport.park(this);
+            }
+            waitingProducer = null;
+            
+            if(Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Lets the reader finish what is buffered, after any move still held
+     * back under COALESCE if there is room for it. Called by the producer.
+     */
+    public void close() {
+        if(pending && !closed) {
+            tryPut(pendingPointer, PenEvents.MOVED, pendingX, pendingY, pendingTime);
+            pending = false;
+        }
+        
+        markClosed();
+    }
+    
+    private void markClosed() {
+        closed = true;
+        
+        Thread consumer = waitingConsumer;
+        if(consumer != null) {
+            LockSupport.unpark(consumer);
+        }
+        Thread producer = waitingProducer;
+        if(producer != null) {
+            LockSupport.unpark(producer);
+        }
+    }
+    
+    public long getDropped() {
+        return dropped;
+    }
+    
+    public long getCoalesced() {
+        return coalesced;
+    }
+    
+    private final ForkJoinPool.ManagedBlocker headBlocker = new ForkJoinPool.ManagedBlocker() {
+        @Override
+        public boolean block() throws InterruptedException {
+            waitingConsumer = Thread.currentThread();
+            try {
+                while(!isReleasable()) {
+                    LockSupport.park(PenEventBuffer.this);
+                    if(Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                }
+            } finally {
+                waitingConsumer = null;
+            }
+            return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            return head.get() != tail.get() || closed;
+        }
+    };
+    
+    /**
+     * Waits until there are events to read. Returns false once the buffer has
+     * been closed and everything in it has been read. Waiting is managed so
+     * readers running in a ForkJoinPool do not starve the pool while their
+     * pointer is idle.
+     */
+    public boolean awaitEvents() {
+        if(head.get() != tail.get()) {
+            return true;
+        }
+        
+        try {
+            ForkJoinPool.managedBlock(headBlocker);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            markClosed();
+        }
+        
+        return head.get() != tail.get();
+    }
+    
+    /**
+     * Hands up to max of the buffered events to the sink and frees their
+     * slots in one go. Does not wait for events.
+     */
+    public int drain(Sink sink, int max) {
+        long h = head.get();
+        int count = (int)Math.min(tail.get() - h, max);
+        
+        for(int n = 0; n < count; n++) {
+            int i = (int)(h + n) & mask;
+            sink.accept(pointers[i], kinds[i], xs[i], ys[i], times[i]);
+        }
+        
+        if(count > 0) {
+            advance(h + count);
+        }
+        
+        return count;
+    }
+    
+    private void advance(long newHead) {
+        head.set(newHead);
+        
+        Thread producer = waitingProducer;
+        if(producer != null) {
+            LockSupport.unpark(producer);
+        }
+    }
+    
+    private int slot() {
+        if(!awaitEvents()) {
+            throw new IllegalStateException("Pen event buffer is closed.");
+        }
+        
+        return (int)head.get() & mask;
+    }
+    
+    public PenInput input() {
+        return new PenInput() {
+            @Override
+            public int peekKind() {
+                return kinds[slot()];
+            }
+
+            @Override
+            public int peekX() {
+                return xs[slot()];
+            }
+
+            @Override
+            public int peekY() {
+                return ys[slot()];
+            }
+
+            @Override
+            public long peekTime() {
+                return times[slot()];
+            }
+
+            @Override
+            public int peekPointer() {
+                return pointers[slot()];
+            }
+
+            @Override
+            public void skip() {
+                if(awaitEvents()) {
+                    advance(head.get() + 1);
+                }
+            }
+
+            @Override
+            public boolean atEnd() {
+                return !awaitEvents();
+            }
+
+            @Override
+            public int fill(PenBatch batch) {
+                batch.clear();
+                if(!awaitEvents()) {
+                    return 0;
+                }
+                
+                long h = head.get();
+                int count = (int)Math.min(tail.get() - h, batch.capacity());
+                for(int n = 0; n < count; n++) {
+                    int i = (int)(h + n) & mask;
+                    batch.add(kinds[i], pointers[i], xs[i], ys[i], times[i]);
+                }
+                return count;
+            }
+
+            @Override
+            public void skip(int count) {
+                while(count > 0 && awaitEvents()) {
+                    long h = head.get();
+                    int step = (int)Math.min(tail.get() - h, count);
+                    advance(h + step);
+                    count -= step;
+                }
+            }
+
+            @Override
+            public InputState getState() {
+                throw new UnsupportedOperationException("Input is not recoverable.");
+            }
+        };
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+/**
+ *
+ * @author jakob
+ */
+public class PenEvents {
+    public static final int DOWN = 0;
+    public static final int MOVED = 1;
+    public static final int UP = 2;
+    
+    public static Object toEvent(int kind, int x, int y) {
+        return toEvent(kind, 0, x, y);
+    }
+    
+    public static Object toEvent(int kind, int pointer, int x, int y) {
+        switch(kind) {
+            case DOWN:
+                return new Main.PenDownAtEvent(pointer, x, y);
+            case MOVED:
+                return new Main.PenMovedToEvent(pointer, x, y);
+            case UP:
+                return new Main.PenUpEvent(pointer);
+        }
+        
+        throw new IllegalArgumentException("Unknown pen event kind: " + kind);
+    }
+    
+    public static int kindOf(Object event) {
+        if(event instanceof Main.PenMovedToEvent) {
+            return MOVED;
+        } else if(event instanceof Main.PenDownAtEvent) {
+            return DOWN;
+        } else if(event instanceof Main.PenUpEvent) {
+            return UP;
+        }
+        
+        throw new IllegalArgumentException("Not a pen event: " + event);
+    }
+    
+    public static int pointerOf(Object event) {
+        if(event instanceof Main.PenMovedToEvent) {
+            return ((Main.PenMovedToEvent)event).pointer;
+        } else if(event instanceof Main.PenDownAtEvent) {
+            return ((Main.PenDownAtEvent)event).pointer;
+        } else if(event instanceof Main.PenUpEvent) {
+            return ((Main.PenUpEvent)event).pointer;
+        }
+        
+        return 0;
+    }
+    
+    public static int xOf(Object event) {
+        if(event instanceof Main.PenMovedToEvent) {
+            return ((Main.PenMovedToEvent)event).x;
+        } else if(event instanceof Main.PenDownAtEvent) {
+            return ((Main.PenDownAtEvent)event).x;
+        }
+        
+        return 0;
+    }
+    
+    public static int yOf(Object event) {
+        if(event instanceof Main.PenMovedToEvent) {
+            return ((Main.PenMovedToEvent)event).y;
+        } else if(event instanceof Main.PenDownAtEvent) {
+            return ((Main.PenDownAtEvent)event).y;
+        }
+        
+        return 0;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+/**
+ * An {@link Input} of pen events that can be read without boxing. The
+ * Object-based {@link #peek()} and {@link #take()} are kept for existing
+ * matchers and create the corresponding event object on demand. Loops over
+ * many events can read them a {@link PenBatch} at a time.
+ *
+ * @author jakob
+ */
+public interface PenInput extends Input {
+    int peekKind();
+    int peekX();
+    int peekY();
+    long peekTime();
+    void skip();
+    
+    /**
+     * Inputs that hold the events of a single pointer may leave this at 0.
+     */
+    default int peekPointer() {
+        return 0;
+    }
+    
+    /**
+     * Copies upcoming events into batch without consuming them: at least one
+     * unless at the end, at most the capacity of the batch. Inputs holding
+     * more than the next event copy as many as they have at hand without
+     * waiting for more.
+     * 
+     * @return the number of events copied
+     */
+    default int fill(PenBatch batch) {
+        batch.clear();
+        if(atEnd()) {
+            return 0;
+        }
+        batch.add(peekKind(), peekPointer(), peekX(), peekY(), peekTime());
+        return 1;
+    }
+    
+    @Override
+    default void skip(int count) {
+        for(int i = 0; i < count; i++) {
+            skip();
+        }
+    }
+
+    @Override
+    default Object peek() {
+        return PenEvents.toEvent(peekKind(), peekPointer(), peekX(), peekY());
+    }
+
+    @Override
+    default Object take() {
+        Object event = peek();
+        skip();
+        return event;
+    }
+}
@@ -0,0 +1,380 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import java.util.Arrays;
+
+/**
+ *
+ * @author jakob
+ */
+public class PenInputs {
+    public static PenInput asPenInput(Input input) {
+        if(input instanceof PenInput) {
+            return (PenInput) input;
+        }
+        
+        return fromInput(input);
+    }
+    
+    public static PenInput fromInput(Input input) {
+        return new PenInput() {
+            @Override
+            public int peekKind() {
+                return PenEvents.kindOf(input.peek());
+            }
+
+            @Override
+            public int peekX() {
+                return PenEvents.xOf(input.peek());
+            }
+
+            @Override
+            public int peekY() {
+                return PenEvents.yOf(input.peek());
+            }
+
+            @Override
+            public long peekTime() {
+                return 0;
+            }
+
+            @Override
+            public int peekPointer() {
+                return PenEvents.pointerOf(input.peek());
+            }
+
+            @Override
+            public void skip() {
+                input.take();
+            }
+
+            @Override
+            public Object peek() {
+                return input.peek();
+            }
+
+            @Override
+            public Object take() {
+                return input.take();
+            }
+
+            @Override
+            public boolean atEnd() {
+                return input.atEnd();
+            }
+
+            @Override
+            public InputState getState() {
+                return input.getState();
+            }
+
+            @Override
+            public Cancellation getCancellation() {
+                return input.getCancellation();
+            }
+        };
+    }
+    
+    public static RecoverablePenInput toRecoverable(PenInput input) {
+        return new RecoverablePenInput(input);
+    }
+    
+    public static RecoverablePenInput toRecoverable(PenInput input, int maxLookback) {
+        return new RecoverablePenInput(input, 64, maxLookback);
+    }
+    
+    /**
+     * Runs the moves of a stroke through a filter. The stroke starts at
+     * (x, y); events other than moves are passed on as they are, after
+     * whatever the filter was still holding on to.
+     */
+    public static PenInput filtered(PenInput stroke, StrokeFilter filter, int x, int y) {
+        filter.reset(x, y);
+        
+        return new PenInput() {
+            private int[] kinds = new int[16];
+            private int[] pointers = new int[16];
+            private int[] xs = new int[16];
+            private int[] ys = new int[16];
+            private long[] times = new long[16];
+            private int first;
+            private int count;
+            private boolean ended;
+            private int pointer;
+            private final PenBatch incoming = new PenBatch(64);
+            private final StrokeFilter.Sink sink = (px, py, time) -> add(PenEvents.MOVED, pointer, px, py, time);
+            
+            private void add(int kind, int pointer, int x, int y, long time) {
+                if(first + count == kinds.length) {
+                    if(first > 0) {
+                        System.arraycopy(kinds, first, kinds, 0, count);
+                        System.arraycopy(pointers, first, pointers, 0, count);
+                        System.arraycopy(xs, first, xs, 0, count);
+                        System.arraycopy(ys, first, ys, 0, count);
+                        System.arraycopy(times, first, times, 0, count);
+                        first = 0;
+                    } else {
+                        kinds = Arrays.copyOf(kinds, count * 2);
+                        pointers = Arrays.copyOf(pointers, count * 2);
+                        xs = Arrays.copyOf(xs, count * 2);
+                        ys = Arrays.copyOf(ys, count * 2);
+                        times = Arrays.copyOf(times, count * 2);
+                    }
+                }
+                
+                int i = first + count;
+                kinds[i] = kind;
+                pointers[i] = pointer;
+                xs[i] = x;
+                ys[i] = y;
+                times[i] = time;
+                count++;
+            }
+            
+            // Takes the events the stroke has at hand a batch at a time, up to
+            // and including the first that is not a move
+            private boolean ensureAvailable() {
+                while(count == 0) {
+                    if(ended) {
+                        return false;
+                    }
+                    
+                    int taken = stroke.fill(incoming);
+                    if(taken == 0) {
+                        ended = true;
+                        filter.end(sink);
+                    }
+                    for(int i = 0; i < taken; i++) {
+                        int kind = incoming.kind(i);
+                        pointer = incoming.pointer(i);
+                        
+                        if(kind == PenEvents.MOVED) {
+                            filter.point(incoming.x(i), incoming.y(i), incoming.time(i), sink);
+                        } else {
+                            filter.end(sink);
+                            add(kind, pointer, incoming.x(i), incoming.y(i), incoming.time(i));
+                            taken = i + 1;
+                            break;
+                        }
+                    }
+                    stroke.skip(taken);
+                }
+                
+                return true;
+            }
+            
+            private int slot() {
+                if(!ensureAvailable()) {
+                    throw new IllegalStateException("End of input.");
+                }
+                
+                return first;
+            }
+            
+            @Override
+            public int peekKind() {
+                return kinds[slot()];
+            }
+
+            @Override
+            public int peekX() {
+                return xs[slot()];
+            }
+
+            @Override
+            public int peekY() {
+                return ys[slot()];
+            }
+
+            @Override
+            public long peekTime() {
+                return times[slot()];
+            }
+
+            @Override
+            public int peekPointer() {
+                return pointers[slot()];
+            }
+
+            @Override
+            public void skip() {
+                if(ensureAvailable()) {
+                    first++;
+                    count--;
+                }
+            }
+
+            @Override
+            public boolean atEnd() {
+                return !ensureAvailable();
+            }
+
+            @Override
+            public int fill(PenBatch batch) {
+                if(!ensureAvailable()) {
+                    batch.clear();
+                    return 0;
+                }
+                
+                int filled = Math.min(count, batch.capacity());
+                batch.set(kinds, pointers, xs, ys, times, first, filled);
+                return filled;
+            }
+
+            @Override
+            public void skip(int count) {
+                while(count > 0 && ensureAvailable()) {
+                    int step = Math.min(count, this.count);
+                    first += step;
+                    this.count -= step;
+                    count -= step;
+                }
+            }
+
+            @Override
+            public InputState getState() {
+                throw new UnsupportedOperationException("Input is not recoverable.");
+            }
+
+            @Override
+            public Cancellation getCancellation() {
+                return stroke.getCancellation();
+            }
+        };
+    }
+    
+    public static PenInput stroke(PenInput source, PenListener listener) {
+        return new PenInput() {
+            private boolean ended;
+            // Number of upcoming events the listener has been told about
+            private int seen;
+            
+            private void ensureCurrentSeen() {
+                if(seen == 0) {
+                    seen = 1;
+                    if(source.peekKind() == PenEvents.MOVED) {
+                        listener.penMovedTo(source.peekX(), source.peekY());
+                    }
+                }
+            }
+            
+            @Override
+            public int peekKind() {
+                ensureCurrentSeen();
+                return source.peekKind();
+            }
+
+            @Override
+            public int peekX() {
+                ensureCurrentSeen();
+                return source.peekX();
+            }
+
+            @Override
+            public int peekY() {
+                ensureCurrentSeen();
+                return source.peekY();
+            }
+
+            @Override
+            public long peekTime() {
+                ensureCurrentSeen();
+                return source.peekTime();
+            }
+
+            @Override
+            public int peekPointer() {
+                ensureCurrentSeen();
+                return source.peekPointer();
+            }
+
+            @Override
+            public void skip() {
+                ensureCurrentSeen();
+                source.skip();
+                seen--;
+            }
+
+            @Override
+            public boolean atEnd() {
+                if(!ended) {
+                    if(source.atEnd()) {
+                        ended = true;
+                    } else if(source.peekKind() == PenEvents.UP) {
+                        source.skip();
+                        seen = 0;
+                        ended = true;
+                    }
+                }
+                
+                return ended;
+            }
+
+            @Override
+            public int fill(PenBatch batch) {
+                if(atEnd()) {
+                    batch.clear();
+                    return 0;
+                }
+                
+                int count = source.fill(batch);
+                for(int i = 0; i < count; i++) {
+                    if(batch.kind(i) == PenEvents.UP) {
+                        count = i;
+                        batch.truncate(i);
+                        break;
+                    }
+                    if(i >= seen && batch.kind(i) == PenEvents.MOVED) {
+                        listener.penMovedTo(batch.x(i), batch.y(i));
+                    }
+                }
+                seen = Math.max(seen, count);
+                return count;
+            }
+
+            @Override
+            public void skip(int count) {
+                if(count <= seen) {
+                    source.skip(count);
+                    seen -= count;
+                } else {
+                    for(int i = 0; i < count && !atEnd(); i++) {
+                        skip();
+                    }
+                }
+            }
+
+            @Override
+            public InputState getState() {
+                throw new UnsupportedOperationException("Input is not recoverable.");
+            }
+
+            @Override
+            public Cancellation getCancellation() {
+                return source.getCancellation();
+            }
+        };
+    }
+}
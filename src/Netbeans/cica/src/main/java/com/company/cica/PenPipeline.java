@@ -0,0 +1,698 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Recognizes strokes in stages, each on a thread of its own, so the stages
+ * of consecutive strokes overlap. The stages hand events on through two
+ * preallocated rings, each slot a set of entries in parallel primitive
+ * arrays, and only synchronize through the sequences of the slots they have
+ * published or are done with:
+ * 
+ * <ol>
+ * <li>capture, whoever offers events, publishes them into the event ring;
+ * <li>preprocess runs the moves of each stroke through its filter and
+ * publishes the result into the point ring;
+ * <li>recognize collects the points of each stroke and at its pen up
+ * matches them against the vocabulary, leaving the result in the slot of the
+ * pen up;
+ * <li>commit follows right behind recognize in the same ring and reports the
+ * points and results to the listener, e.g. to draw them.
+ * </ol>
+ * 
+ * A stage waits for the one before it by spinning briefly and then parking,
+ * and a producer waits for the slowest consumer of its ring in the same way;
+ * there are no locks. Handing events on from capture through preprocess to
+ * commit allocates nothing per event; the per pointer state of a stroke is
+ * reused. The other work is not free of allocation: recognition allocates
+ * per stroke, for the input it hands {@link RecognitionEngine} and within
+ * it, and the stroke filters may allocate as they go. Moves offered while
+ * the event ring is full are dropped and counted, so capture never waits on
+ * them.
+ * 
+ * Unlike {@link RecognitionEngine} run per stroke, the matchers only see a
+ * stroke once it has ended, so there are no previews.
+ *
+ * @author jakob
+ */
+public class PenPipeline implements PenEventBuffer.Sink {
+    private static final Logger LOGGER = Logger.getLogger(PenPipeline.class.getName());
+    private static final int SPINS = 100;
+    private static final int STAGES = 3;
+    
+    // Results of strokes that are not actions
+    private static final Object REJECTED = new Object();
+    private static final Object ABANDONED = new Object();
+    
+    private final Ring events;
+    private final Ring points;
+    // The last slots published by capture and preprocess, and the last slots
+    // preprocess, recognize and commit are done with
+    private final Sequence captured = new Sequence();
+    private final Sequence preprocessed = new Sequence();
+    private final Sequence filtered = new Sequence();
+    private final Sequence recognized = new Sequence();
+    private final Sequence committed = new Sequence();
+    private volatile boolean captureEnded;
+    private volatile boolean preprocessEnded;
+    private volatile boolean recognizeEnded;
+    private volatile boolean commitEnded;
+    private final CountDownLatch stagesEnded = new CountDownLatch(STAGES);
+    private volatile long dropped;
+    
+    private final Supplier<StrokeFilter> filterSupplier;
+    private final RecognitionEngine recognitionEngine;
+    private final RecognitionListener listener;
+    
+    // Only touched by capture
+    private long captureCursor = -1;
+    
+    // Only touched by recognize
+    private Object result;
+
+    /**
+     * @param vocabulary matchers producing CanvasActions, in order of priority
+     * @param budgetNanos how long the matchers may work on a stroke; 0 for no
+     * limit
+     * @param filterSupplier creates the filter of a pointer, or null
+     * @param capacity the number of slots of each ring, rounded up to a power
+     * of two
+     */
+    public PenPipeline(Canvas canvas, MatcherFactory[] vocabulary, long budgetNanos, Supplier<StrokeFilter> filterSupplier, RecognitionListener listener, int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        events = new Ring(size, false);
+        points = new Ring(size, true);
+        this.filterSupplier = filterSupplier;
+        this.listener = listener;
+        recognitionEngine = new RecognitionEngine(canvas, vocabulary, 0, budgetNanos, null, new RecognitionListener() {
+            @Override
+            public void strokeStarted(int pointer, int x, int y) {
+            }
+
+            @Override
+            public void strokeMoved(int pointer, int x, int y) {
+            }
+
+            @Override
+            public void previewChanged(int pointer, CanvasAction preview) {
+            }
+
+            @Override
+            public void recognized(int pointer, CanvasAction action) {
+                result = action;
+            }
+
+            @Override
+            public void rejected(int pointer) {
+                result = REJECTED;
+            }
+
+            @Override
+            public void abandoned(int pointer) {
+                result = ABANDONED;
+            }
+        });
+    }
+    
+    /**
+     * Starts the preprocess, recognize and commit stages on the executor,
+     * which needs a thread for each of them.
+     */
+    public void start(Executor executor) {
+        executor.execute(() -> runStage(this::preprocess, () -> preprocessEnded = true));
+        executor.execute(() -> runStage(this::recognize, () -> recognizeEnded = true));
+        executor.execute(() -> runStage(this::commit, () -> commitEnded = true));
+    }
+    
+    private interface Stage {
+        void run() throws InterruptedException;
+    }
+    
+    private void runStage(Stage stage, Runnable ended) {
+        try {
+            stage.run();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException ex) {
+            LOGGER.log(Level.SEVERE, "Pipeline stage failed", ex);
+        } finally {
+            ended.run();
+            // Let those waiting on the stage see it end
+            captured.wake();
+            filtered.wake();
+            recognized.wake();
+            preprocessed.wake();
+            committed.wake();
+            stagesEnded.countDown();
+        }
+    }
+    
+    /**
+     * Captures an event. Events are to be offered from one thread at a time.
+     * Pen downs and ups wait for room in the ring; moves are dropped when
+     * there is none.
+     * 
+     * @return whether the event was taken
+     */
+    public boolean offer(int pointer, int kind, int x, int y, long time) {
+        if(captureEnded || preprocessEnded) {
+            return false;
+        }
+        
+        long next = captureCursor + 1;
+        long wrapPoint = next - events.size;
+        if(preprocessed.get() < wrapPoint) {
+            if(kind == PenEvents.MOVED) {
+                dropped++;
+                return false;
+            }
+            if(!preprocessed.await(wrapPoint, () -> preprocessEnded)) {
+                return false;
+            }
+        }
+        
+        events.put(next, pointer, kind, x, y, time);
+        captureCursor = next;
+        captured.publish(next);
+        return true;
+    }
+
+    @Override
+    public void accept(int pointer, int kind, int x, int y, long time) {
+        offer(pointer, kind, x, y, time);
+    }
+    
+    /**
+     * Captures the events of the buffer until it is closed, and then closes
+     * the pipeline.
+     */
+    public void dispatch(PenEventBuffer buffer) {
+        while(buffer.awaitEvents()) {
+            buffer.drain(this, 64);
+        }
+        
+        close();
+    }
+    
+    /**
+     * Captures the events of the buffer, showing each to tap first, e.g. to
+     * record them.
+     */
+    public void dispatch(PenEventBuffer buffer, PenEventBuffer.Sink tap) {
+        PenEventBuffer.Sink sink = (pointer, kind, x, y, time) -> {
+            tap.accept(pointer, kind, x, y, time);
+            offer(pointer, kind, x, y, time);
+        };
+        
+        while(buffer.awaitEvents()) {
+            buffer.drain(sink, 64);
+        }
+        
+        close();
+    }
+    
+    /**
+     * Ends capture. The stages go on until everything captured has been
+     * committed; strokes still in progress are ended where they are.
+     */
+    public void close() {
+        captureEnded = true;
+        captured.wake();
+    }
+    
+    /**
+     * Waits for the stages to end after the pipeline has been closed.
+     */
+    public boolean awaitEnd(long timeout, TimeUnit unit) throws InterruptedException {
+        return stagesEnded.await(timeout, unit);
+    }
+    
+    /**
+     * The number of moves dropped for lack of room.
+     */
+    public long getDropped() {
+        return dropped;
+    }
+    
+    private void preprocess() throws InterruptedException {
+        HashMap<Integer, Pen> pens = new HashMap<>();
+        Publisher publisher = new Publisher();
+        
+        long next = 0;
+        while(true) {
+            long available = captured.awaitOrEnd(next, () -> captureEnded);
+            if(available < next) {
+                break;
+            }
+            
+            for(; next <= available; next++) {
+                int i = events.index(next);
+                int pointer = events.pointers[i];
+                int kind = events.kinds[i];
+                int x = events.xs[i];
+                int y = events.ys[i];
+                long time = events.times[i];
+                
+                Pen pen = pens.get(pointer);
+                switch(kind) {
+                    case PenEvents.DOWN:
+                        if(pen == null) {
+                            pen = new Pen(filterSupplier != null ? filterSupplier.get() : null);
+                            pens.put(pointer, pen);
+                        } else if(pen.down) {
+                            // A lost pen up; end the previous stroke where
+                            // it is
+                            publisher.endStroke(pen.filter, pointer, x, y, time);
+                        }
+                        pen.down = true;
+                        if(pen.filter != null) {
+                            pen.filter.reset(x, y);
+                        }
+                        publisher.publish(pointer, PenEvents.DOWN, x, y, time);
+                        break;
+                    case PenEvents.MOVED:
+                        if(pen == null || !pen.down) {
+                            break;
+                        }
+                        if(pen.filter != null) {
+                            publisher.pointer = pointer;
+                            pen.filter.point(x, y, time, publisher);
+                        } else {
+                            publisher.publish(pointer, PenEvents.MOVED, x, y, time);
+                        }
+                        break;
+                    case PenEvents.UP:
+                        if(pen != null && pen.down) {
+                            pen.down = false;
+                            publisher.endStroke(pen.filter, pointer, x, y, time);
+                        }
+                        break;
+                }
+            }
+            
+            preprocessed.publish(available);
+            publisher.flush();
+        }
+        
+        for(Integer pointer : pens.keySet()) {
+            Pen pen = pens.get(pointer);
+            if(pen.down) {
+                publisher.endStroke(pen.filter, pointer, 0, 0, 0);
+            }
+        }
+        publisher.flush();
+    }
+    
+    // The state of a pointer in preprocess; the filter is reused from stroke
+    // to stroke
+    private static final class Pen {
+        private final StrokeFilter filter;
+        private boolean down;
+
+        private Pen(StrokeFilter filter) {
+            this.filter = filter;
+        }
+    }
+    
+    // Publishes into the point ring on behalf of preprocess
+    private class Publisher implements StrokeFilter.Sink {
+        private long cursor = -1;
+        private int pointer;
+
+        @Override
+        public void point(int x, int y, long time) {
+            publish(pointer, PenEvents.MOVED, x, y, time);
+        }
+        
+        private void endStroke(StrokeFilter filter, int pointer, int x, int y, long time) {
+            if(filter != null) {
+                this.pointer = pointer;
+                filter.end(this);
+            }
+            publish(pointer, PenEvents.UP, x, y, time);
+        }
+        
+        private void publish(int pointer, int kind, int x, int y, long time) {
+            long next = cursor + 1;
+            long wrapPoint = next - points.size;
+            if(committed.get() < wrapPoint) {
+                // Let the consumers have what is there before waiting for
+                // them
+                flush();
+                if(!committed.await(wrapPoint, () -> commitEnded)) {
+                    throw new IllegalStateException("Pipeline was interrupted.");
+                }
+            }
+            
+            points.put(next, pointer, kind, x, y, time);
+            cursor = next;
+        }
+        
+        private void flush() {
+            if(cursor > filtered.get()) {
+                filtered.publish(cursor);
+            }
+        }
+    }
+    
+    private void recognize() throws InterruptedException {
+        HashMap<Integer, Stroke> strokes = new HashMap<>();
+        
+        long next = 0;
+        while(true) {
+            long available = filtered.awaitOrEnd(next, () -> preprocessEnded);
+            if(available < next) {
+                break;
+            }
+            
+            for(; next <= available; next++) {
+                int i = points.index(next);
+                int pointer = points.pointers[i];
+                
+                switch(points.kinds[i]) {
+                    case PenEvents.DOWN: {
+                        Stroke stroke = strokes.get(pointer);
+                        if(stroke == null) {
+                            stroke = new Stroke();
+                            strokes.put(pointer, stroke);
+                        }
+                        stroke.reset(points.xs[i], points.ys[i]);
+                        break;
+                    }
+                    case PenEvents.MOVED:
+                        strokes.get(pointer).add(points.xs[i], points.ys[i], points.times[i]);
+                        break;
+                    case PenEvents.UP: {
+                        // Let commit draw what came before while the stroke
+                        // is being matched
+                        recognized.publish(next - 1);
+                        
+                        Stroke stroke = strokes.get(pointer);
+                        stroke.end(points.times[i]);
+                        result = REJECTED;
+                        try {
+                            recognitionEngine.recognize(pointer, stroke.startX, stroke.startY, stroke.input());
+                        } catch (RuntimeException ex) {
+                            LOGGER.log(Level.SEVERE, "Recognition of stroke failed", ex);
+                            result = ABANDONED;
+                        }
+                        points.results[i] = result;
+                        result = null;
+                        break;
+                    }
+                }
+            }
+            
+            recognized.publish(available);
+        }
+    }
+    
+    private void commit() throws InterruptedException {
+        long next = 0;
+        while(true) {
+            long available = recognized.awaitOrEnd(next, () -> recognizeEnded);
+            if(available < next) {
+                break;
+            }
+            
+            for(; next <= available; next++) {
+                int i = points.index(next);
+                int pointer = points.pointers[i];
+                
+                switch(points.kinds[i]) {
+                    case PenEvents.DOWN:
+                        listener.strokeStarted(pointer, points.xs[i], points.ys[i]);
+                        break;
+                    case PenEvents.MOVED:
+                        listener.strokeMoved(pointer, points.xs[i], points.ys[i]);
+                        break;
+                    case PenEvents.UP: {
+                        Object strokeResult = points.results[i];
+                        points.results[i] = null;
+                        if(strokeResult == ABANDONED) {
+                            listener.abandoned(pointer);
+                        } else if(strokeResult instanceof CanvasAction) {
+                            listener.recognized(pointer, (CanvasAction) strokeResult);
+                        } else {
+                            listener.rejected(pointer);
+                        }
+                        break;
+                    }
+                }
+            }
+            
+            committed.publish(available);
+        }
+    }
+    
+    private static final class Ring {
+        private final int size;
+        private final int mask;
+        private final int[] kinds;
+        private final int[] pointers;
+        private final int[] xs;
+        private final int[] ys;
+        private final long[] times;
+        private final Object[] results;
+
+        private Ring(int size, boolean withResults) {
+            this.size = size;
+            mask = size - 1;
+            kinds = new int[size];
+            pointers = new int[size];
+            xs = new int[size];
+            ys = new int[size];
+            times = new long[size];
+            results = withResults ? new Object[size] : null;
+        }
+        
+        private int index(long sequence) {
+            return (int)sequence & mask;
+        }
+        
+        private void put(long sequence, int pointer, int kind, int x, int y, long time) {
+            int i = index(sequence);
+            pointers[i] = pointer;
+            kinds[i] = kind;
+            xs[i] = x;
+            ys[i] = y;
+            times[i] = time;
+        }
+    }
+    
+    private interface Condition {
+        boolean holds();
+    }
+    
+    /**
+     * The last slot a stage has published or is done with, and the one
+     * thread that may be waiting for it to move on. The padding keeps
+     * sequences of different stages off each other's cache lines.
+     */
+    @SuppressWarnings("unused")
+    private static final class Sequence {
+        private volatile long value = -1;
+        private volatile Thread waiter;
+        private long p1, p2, p3, p4, p5, p6, p7;
+        
+        private long get() {
+            return value;
+        }
+        
+        private void publish(long sequence) {
+            value = sequence;
+            wake();
+        }
+        
+        private void wake() {
+            Thread thread = waiter;
+            if(thread != null) {
+                LockSupport.unpark(thread);
+            }
+        }
+        
+        /**
+         * Waits until the sequence has reached the given one, and returns
+         * false if interrupted or once the producer has ended without.
+         */
+        private boolean await(long sequence, Condition ended) {
+            try {
+                return awaitOrEnd(sequence, ended) >= sequence;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        
+        /**
+         * Waits until the sequence has reached the given one, and returns
+         * it, or what it stopped at if the producer has ended.
+         */
+        private long awaitOrEnd(long sequence, Condition ended) throws InterruptedException {
+            long available = get();
+            for(int spin = 0; available < sequence && spin < SPINS; spin++) {
+                available = get();
+            }
+            
+            if(available < sequence) {
+                waiter = Thread.currentThread();
+                try {
+                    while((available = get()) < sequence) {
+                        if(ended.holds()) {
+                            // Whatever was published before the end counts
+                            return get();
+                        }
+                        LockSupport.park(this);
+                        if(Thread.interrupted()) {
+                            throw new InterruptedException();
+                        }
+                    }
+                } finally {
+                    waiter = null;
+                }
+            }
+            
+            return available;
+        }
+    }
+    
+    /**
+     * The points of a stroke, kept for recognition once it has ended. The
+     * arrays are reused from stroke to stroke.
+     */
+    private static final class Stroke {
+        private int startX;
+        private int startY;
+        private int[] xs = new int[256];
+        private int[] ys = new int[256];
+        private long[] times = new long[256];
+        private int count;
+        private long endTime;
+        
+        private void reset(int x, int y) {
+            startX = x;
+            startY = y;
+            count = 0;
+        }
+        
+        private void end(long time) {
+            endTime = time;
+        }
+        
+        private void add(int x, int y, long time) {
+            if(count == xs.length) {
+                xs = Arrays.copyOf(xs, count * 2);
+                ys = Arrays.copyOf(ys, count * 2);
+                times = Arrays.copyOf(times, count * 2);
+            }
+            xs[count] = x;
+            ys[count] = y;
+            times[count] = time;
+            count++;
+        }
+        
+        private int lastX() {
+            return count > 0 ? xs[count - 1] : startX;
+        }
+        
+        private int lastY() {
+            return count > 0 ? ys[count - 1] : startY;
+        }
+        
+        // The moves followed by the pen up
+        private PenInput input() {
+            return new PenInput() {
+                private int position;
+                
+                @Override
+                public int peekKind() {
+                    return position < count ? PenEvents.MOVED : PenEvents.UP;
+                }
+
+                // The pen up is where the last move was
+                @Override
+                public int peekX() {
+                    return position < count ? xs[position] : lastX();
+                }
+
+                @Override
+                public int peekY() {
+                    return position < count ? ys[position] : lastY();
+                }
+
+                @Override
+                public long peekTime() {
+                    return position < count ? times[position] : endTime;
+                }
+
+                @Override
+                public void skip() {
+                    if(position <= count) {
+                        position++;
+                    }
+                }
+
+                @Override
+                public boolean atEnd() {
+                    return position > count;
+                }
+
+                @Override
+                public int fill(PenBatch batch) {
+                    batch.clear();
+                    int end = Math.min(count + 1, position + batch.capacity());
+                    for(int p = position; p < end; p++) {
+                        if(p < count) {
+                            batch.add(PenEvents.MOVED, 0, xs[p], ys[p], times[p]);
+                        } else {
+                            batch.add(PenEvents.UP, 0, lastX(), lastY(), endTime);
+                        }
+                    }
+                    return batch.size();
+                }
+
+                @Override
+                public void skip(int n) {
+                    position = Math.min(position + n, count + 1);
+                }
+
+                @Override
+                public InputState getState() {
+                    int saved = position;
+                    return () -> position = saved;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Records pen events to a file in the {@link PenRecording} format. Events
+ * are handed over through a ring and encoded and written on a thread of the
+ * recorder's own, so recording never blocks the event pipeline; if the
+ * writer falls behind, events are dropped and counted instead.
+ *
+ * @author jakob
+ */
+public class PenRecorder implements PenEventBuffer.Sink, Closeable {
+    private final FileChannel channel;
+    private final PenEventBuffer events;
+    private final ByteBuffer out = ByteBuffer.allocateDirect(1 << 16);
+    private final PenRecording.Encoder encoder = new PenRecording.Encoder();
+    private final Thread writer;
+    private volatile IOException failure;
+
+    public PenRecorder(Path path) throws IOException {
+        this(path, 1 << 14);
+    }
+
+    public PenRecorder(Path path, int capacity) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        events = new PenEventBuffer(capacity, PenEventBuffer.OverflowPolicy.DROP);
+        encoder.header(out);
+        
+        writer = new Thread(this::write, "Pen recorder");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Records an event; to be called from a single thread.
+     */
+    @Override
+    public void accept(int pointer, int kind, int x, int y, long time) {
+        events.offer(pointer, kind, x, y, time);
+    }
+    
+    public long getDropped() {
+        return events.getDropped();
+    }
+    
+    private void write() {
+        try {
+            while(events.awaitEvents()) {
+                events.drain(this::encode, 256);
+                flush();
+            }
+            flush();
+        } catch (IOException ex) {
+            failure = ex;
+        } catch (UncheckedIOException ex) {
+            failure = ex.getCause();
+        }
+    }
+    
+    private void encode(int pointer, int kind, int x, int y, long time) {
+        if(out.remaining() < PenRecording.MAX_EVENT_SIZE) {
+            try {
+                flush();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+        encoder.encode(out, pointer, kind, x, y, time);
+    }
+    
+    private void flush() throws IOException {
+        out.flip();
+        while(out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+
+    /**
+     * Writes the events recorded so far and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        events.close();
+        try {
+            writer.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        
+        if(failure != null) {
+            throw failure;
+        }
+    }
+}
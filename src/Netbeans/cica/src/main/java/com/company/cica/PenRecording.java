@@ -0,0 +1,339 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary log format for pen events. A recording is a header followed by the
+ * events, each encoded relative to the one before it: a tag byte holding the
+ * kind and whether the pointer changed, the new pointer if it did, and the
+ * deltas of x, y and time as zigzag varints. A typical move takes four
+ * bytes.
+ * 
+ * Recordings are written by {@link PenRecorder} and replayed through a
+ * memory mapped {@link Replay}, which decodes in place without copying and
+ * maps large files a window at a time.
+ *
+ * @author jakob
+ */
+public class PenRecording {
+    private static final int MAGIC = 0x43494341;
+    private static final byte VERSION = 1;
+    private static final int HEADER_SIZE = 5;
+    private static final int POINTER_CHANGED = 4;
+    private static final int KIND_MASK = 3;
+    private static final long WINDOW_SIZE = 1L << 28;
+    
+    /**
+     * Upper bound of the encoded size of one event.
+     */
+    public static final int MAX_EVENT_SIZE = 1 + 5 + 5 + 5 + 10;
+    
+    private PenRecording() {
+    }
+    
+    /**
+     * Encodes a stream of events; the deltas are kept from one call to the
+     * next, so an encoder belongs to one recording.
+     */
+    public static class Encoder {
+        private int pointer;
+        private int x;
+        private int y;
+        private long time;
+        
+        public void header(ByteBuffer out) {
+            out.putInt(MAGIC);
+            out.put(VERSION);
+        }
+        
+        /**
+         * Writes one event; out must have room for {@link #MAX_EVENT_SIZE}
+         * bytes.
+         */
+        public void encode(ByteBuffer out, int pointer, int kind, int x, int y, long time) {
+            if(pointer != this.pointer) {
+                out.put((byte)(kind | POINTER_CHANGED));
+                putVarint(out, zigzag(pointer));
+                this.pointer = pointer;
+            } else {
+                out.put((byte)kind);
+            }
+            
+            putVarint(out, zigzag(x - this.x));
+            putVarint(out, zigzag(y - this.y));
+            putVarlong(out, zigzag(time - this.time));
+            this.x = x;
+            this.y = y;
+            this.time = time;
+        }
+    }
+    
+    public static Replay replay(Path path) throws IOException {
+        return replay(path, WINDOW_SIZE);
+    }
+    
+    // Smaller windows let tests cross them without huge files
+    static Replay replay(Path path, long windowSize) throws IOException {
+        return new Replay(FileChannel.open(path, StandardOpenOption.READ), windowSize);
+    }
+    
+    /**
+     * A recording read as a {@link PenInput}. The input is recoverable.
+     */
+    public static class Replay implements PenInput, Closeable {
+        private final FileChannel channel;
+        private final long size;
+        private final long windowSize;
+        private long windowStart;
+        private MappedByteBuffer window;
+        private boolean hasEvent;
+        private int kind;
+        private int pointer;
+        private int x;
+        private int y;
+        private long time;
+
+        private Replay(FileChannel channel, long windowSize) throws IOException {
+            this.channel = channel;
+            this.windowSize = windowSize;
+            size = channel.size();
+            
+            if(size < HEADER_SIZE) {
+                throw new IOException("Not a pen recording.");
+            }
+            map(0);
+            if(window.getInt() != MAGIC) {
+                throw new IOException("Not a pen recording.");
+            }
+            byte version = window.get();
+            if(version != VERSION) {
+                throw new IOException("Unsupported pen recording version " + version + ".");
+            }
+            
+            decode();
+        }
+        
+        private void map(long position) {
+            try {
+                windowStart = position;
+                window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(windowSize, size - position));
+            } catch (IOException ex) {
+                throw new IllegalStateException("Pen recording could not be mapped.", ex);
+            }
+        }
+        
+        private void decode() {
+            // An event may straddle the end of the window
+            if(window.remaining() < MAX_EVENT_SIZE && windowStart + window.limit() < size) {
+                map(windowStart + window.position());
+            }
+            
+            if(!window.hasRemaining()) {
+                hasEvent = false;
+                return;
+            }
+            
+            int start = window.position();
+            try {
+                int tag = window.get();
+                if((tag & POINTER_CHANGED) != 0) {
+                    pointer = unzigzag(getVarint(window));
+                }
+                kind = tag & KIND_MASK;
+                x += unzigzag(getVarint(window));
+                y += unzigzag(getVarint(window));
+                time += unzigzag(getVarlong(window));
+                hasEvent = true;
+            } catch (BufferUnderflowException ex) {
+                // Cut off while recording; the partial event is dropped
+                window.position(start);
+                hasEvent = false;
+            }
+        }
+
+        @Override
+        public int peekKind() {
+            return kind;
+        }
+
+        @Override
+        public int peekPointer() {
+            return pointer;
+        }
+
+        @Override
+        public int peekX() {
+            return x;
+        }
+
+        @Override
+        public int peekY() {
+            return y;
+        }
+
+        @Override
+        public long peekTime() {
+            return time;
+        }
+
+        @Override
+        public void skip() {
+            if(hasEvent) {
+                decode();
+            }
+        }
+
+        @Override
+        public boolean atEnd() {
+            return !hasEvent;
+        }
+
+        @Override
+        public int fill(PenBatch batch) {
+            batch.clear();
+            if(!hasEvent) {
+                return 0;
+            }
+            
+            int start = window.position();
+            int kind = this.kind;
+            int pointer = this.pointer;
+            int x = this.x;
+            int y = this.y;
+            long time = this.time;
+            
+            batch.add(kind, pointer, x, y, time);
+            // Decode ahead only as far as the window goes, so it stays mapped
+            while(batch.size() < batch.capacity() && window.remaining() >= MAX_EVENT_SIZE) {
+                decode();
+                if(!hasEvent) {
+                    break;
+                }
+                batch.add(this.kind, this.pointer, this.x, this.y, this.time);
+            }
+            
+            window.position(start);
+            hasEvent = true;
+            this.kind = kind;
+            this.pointer = pointer;
+            this.x = x;
+            this.y = y;
+            this.time = time;
+            return batch.size();
+        }
+
+        @Override
+        public InputState getState() {
+            long next = windowStart + window.position();
+            boolean hasEvent = this.hasEvent;
+            int kind = this.kind;
+            int pointer = this.pointer;
+            int x = this.x;
+            int y = this.y;
+            long time = this.time;
+            
+            return () -> {
+                if(next < windowStart || next > windowStart + window.limit()) {
+                    map(next);
+                } else {
+                    window.position((int)(next - windowStart));
+                }
+                this.hasEvent = hasEvent;
+                this.kind = kind;
+                this.pointer = pointer;
+                this.x = x;
+                this.y = y;
+                this.time = time;
+            };
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+    
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+    
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+    
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+    
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+    
+    private static void putVarint(ByteBuffer out, int value) {
+        while((value & ~0x7F) != 0) {
+            out.put((byte)((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte)value);
+    }
+    
+    private static void putVarlong(ByteBuffer out, long value) {
+        while((value & ~0x7FL) != 0) {
+            out.put((byte)((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte)value);
+    }
+    
+    private static int getVarint(ByteBuffer in) {
+        int value = 0;
+        for(int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if(b >= 0) {
+                return value;
+            }
+        }
+    }
+    
+    private static long getVarlong(ByteBuffer in) {
+        long value = 0;
+        for(int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (long)(b & 0x7F) << shift;
+            if(b >= 0) {
+                return value;
+            }
+        }
+    }
+}
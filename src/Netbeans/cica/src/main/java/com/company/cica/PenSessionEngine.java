@@ -0,0 +1,155 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Demultiplexes the pen events of many pointers into independent strokes.
+ * Each pen down opens a session with its own event buffer, and the stroke is
+ * recognized as a task on the worker executor, so a slow stroke on one
+ * pointer never holds up the others. With a {@link RecognitionRuntime} as
+ * the executor, each stroke gets a thread of its own. Events are dispatched
+ * from a single thread.
+ *
+ * @author jakob
+ */
+public class PenSessionEngine {
+    public interface StrokeRecognizer {
+        /**
+         * Recognizes one stroke. The events are the moves of the stroke
+         * followed by its pen up.
+         */
+        void recognize(int pointer, int x, int y, PenInput events) throws InterruptedException;
+    }
+    
+    private final ExecutorService workers;
+    private final StrokeRecognizer recognizer;
+    private final int sessionCapacity;
+    private final HashMap<Integer, PenEventBuffer> sessions = new HashMap<>();
+
+    public PenSessionEngine(ExecutorService workers, StrokeRecognizer recognizer, int sessionCapacity) {
+        this.workers = workers;
+        this.recognizer = recognizer;
+        this.sessionCapacity = sessionCapacity;
+    }
+    
+    public void dispatch(PenEventBuffer events) {
+        while(events.awaitEvents()) {
+            events.drain(this::dispatch, 64);
+        }
+        
+        closeSessions();
+    }
+    
+    /**
+     * Dispatches events, showing each to tap first, e.g. to record them.
+     */
+    public void dispatch(PenEventBuffer events, PenEventBuffer.Sink tap) {
+        PenEventBuffer.Sink sink = (pointer, kind, x, y, time) -> {
+            tap.accept(pointer, kind, x, y, time);
+            dispatch(pointer, kind, x, y, time);
+        };
+        
+        while(events.awaitEvents()) {
+            events.drain(sink, 64);
+        }
+        
+        closeSessions();
+    }
+    
+    public void dispatch(PenInput events) {
+        while(!events.atEnd()) {
+            dispatch(events.peekPointer(), events.peekKind(), events.peekX(), events.peekY(), events.peekTime());
+            events.skip();
+        }
+        
+        closeSessions();
+    }
+    
+    public void dispatch(int pointer, int kind, int x, int y, long time) {
+        switch(kind) {
+            case PenEvents.DOWN:
+                startSession(pointer, x, y);
+                break;
+            case PenEvents.MOVED: {
+                PenEventBuffer session = sessions.get(pointer);
+                if(session != null) {
+                    session.offer(pointer, kind, x, y, time);
+                }
+                break;
+            }
+            case PenEvents.UP: {
+                PenEventBuffer session = sessions.remove(pointer);
+                if(session != null) {
+                    session.offer(pointer, kind, x, y, time);
+                    session.close();
+                }
+                break;
+            }
+        }
+    }
+    
+    public int activeSessions() {
+        return sessions.size();
+    }
+    
+    private void startSession(int pointer, int x, int y) {
+        PenEventBuffer previous = sessions.remove(pointer);
+        if(previous != null) {
+            // A lost pen up; end the previous stroke where it is
+            previous.close();
+        }
+        
+        PenEventBuffer session = new PenEventBuffer(sessionCapacity, PenEventBuffer.OverflowPolicy.COALESCE);
+        sessions.put(pointer, session);
+        
+        try {
+            workers.execute(() -> {
+                try {
+                    recognizer.recognize(pointer, x, y, session.input());
+                } catch (InterruptedException ex) {
+                    // Shutting down; leave the stroke as it is
+                    Thread.currentThread().interrupt();
+                } catch (RuntimeException ex) {
+                    Logger.getLogger(PenSessionEngine.class.getName()).log(Level.SEVERE, "Recognition of stroke failed", ex);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            // The workers are shutting down; the events of the stroke are
+            // dropped
+            sessions.remove(pointer);
+            session.close();
+        }
+    }
+    
+    private void closeSessions() {
+        sessions.values().forEach(s -> s.close());
+        sessions.clear();
+    }
+}
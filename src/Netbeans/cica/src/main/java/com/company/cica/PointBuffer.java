@@ -0,0 +1,133 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import java.awt.Rectangle;
+
+/**
+ * Append-only sequence of points that can be read without locking while it
+ * is appended to. Appends are serialized; a reader takes a {@link Points}
+ * snapshot, which sees every point appended before it was taken and none
+ * after, however the buffer grows in the meantime.
+ * 
+ * The arrays are only ever replaced by larger copies, so an array that has
+ * been published holds every point up to the size published after it.
+ *
+ * @author jakob
+ */
+final class PointBuffer {
+    /**
+     * The first count points of a buffer. The arrays may be longer, and must
+     * not be changed.
+     */
+    static final class Points {
+        final int[] xs;
+        final int[] ys;
+        final int count;
+
+        private Points(int[] xs, int[] ys, int count) {
+            this.xs = xs;
+            this.ys = ys;
+            this.count = count;
+        }
+    }
+    
+    private volatile int[] xs;
+    private volatile int[] ys;
+    // Written after the point and the bounds, which it publishes
+    private volatile int size;
+    private volatile int minX;
+    private volatile int minY;
+    private volatile int maxX;
+    private volatile int maxY;
+
+    PointBuffer(int x, int y) {
+        xs = new int[16];
+        ys = new int[16];
+        xs[0] = x;
+        ys[0] = y;
+        minX = maxX = x;
+        minY = maxY = y;
+        size = 1;
+    }
+    
+    synchronized void append(int x, int y) {
+        int index = size;
+        int[] currentXs = xs;
+        int[] currentYs = ys;
+        
+        if(index == currentXs.length) {
+            int[] newXs = new int[index * 2];
+            int[] newYs = new int[index * 2];
+            System.arraycopy(currentXs, 0, newXs, 0, index);
+            System.arraycopy(currentYs, 0, newYs, 0, index);
+            currentXs = newXs;
+            currentYs = newYs;
+        }
+        
+        currentXs[index] = x;
+        currentYs[index] = y;
+        xs = currentXs;
+        ys = currentYs;
+        if(x < minX) {
+            minX = x;
+        }
+        if(y < minY) {
+            minY = y;
+        }
+        if(x > maxX) {
+            maxX = x;
+        }
+        if(y > maxY) {
+            maxY = y;
+        }
+        size = index + 1;
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    Points snapshot() {
+        // The size first: arrays read after it hold at least that many points
+        int count = size;
+        return new Points(xs, ys, count);
+    }
+    
+    /**
+     * Covers at least the points appended before the call, as the bounds
+     * only ever grow.
+     */
+    Rectangle getBounds() {
+        int x = minX;
+        int y = minY;
+        return new Rectangle(x, y, maxX - x, maxY - y);
+    }
+    
+    boolean intersects(Rectangle area, int padding) {
+        int x = minX;
+        int y = minY;
+        return area.intersects(x - padding, y - padding, maxX - x + 2 * padding, maxY - y + 2 * padding);
+    }
+}
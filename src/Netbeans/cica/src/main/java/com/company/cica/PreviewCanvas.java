@@ -0,0 +1,72 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import java.util.ArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Canvas that remembers the drawings made on it so they can be taken down
+ * again, e.g. when a preview of a recognized shape is replaced.
+ *
+ * @author jakob
+ */
+public class PreviewCanvas implements Canvas {
+    private final Canvas canvas;
+    private final ArrayList<Drawing> drawings = new ArrayList<>();
+
+    public PreviewCanvas(Canvas canvas) {
+        this.canvas = canvas;
+    }
+
+    @Override
+    public Drawing newDrawing(int x, int y) {
+        Drawing drawing = canvas.newDrawing(x, y);
+        drawings.add(drawing);
+        return drawing;
+    }
+
+    @Override
+    public Drawing drawingAt(int x, int y, int radius) {
+        return canvas.drawingAt(x, y, radius);
+    }
+
+    @Override
+    public void drawingsIn(int x, int y, int width, int height, Consumer<? super Drawing> action) {
+        canvas.drawingsIn(x, y, width, height, action);
+    }
+    
+    /**
+     * Keeps the drawings made so far for good.
+     */
+    public void commit() {
+        drawings.forEach(d -> d.commit());
+        drawings.clear();
+    }
+    
+    public void clear() {
+        drawings.forEach(d -> d.delete());
+        drawings.clear();
+    }
+}
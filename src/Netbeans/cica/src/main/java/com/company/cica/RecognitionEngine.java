@@ -0,0 +1,244 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import java.util.function.Supplier;
+
+/**
+ * Recognizes strokes into {@link CanvasAction}s without any dependency on a
+ * display. Each stroke is matched against the vocabulary, optionally through
+ * a stroke filter, and the outcome is reported to a listener; rendering is up
+ * to the listener.
+ * 
+ * A budget bounds how long the matchers may work on a stroke without taking
+ * another event from it, and thereby how long the decision may take after
+ * the pen is lifted. Strokes running over it are abandoned, as are strokes
+ * the matchers would have to go back over further than the lookback of the
+ * input allows.
+ *
+ * @author jakob
+ */
+public class RecognitionEngine implements PenSessionEngine.StrokeRecognizer {
+    private final Canvas canvas;
+    private final MatcherFactory[] vocabulary;
+    private final int previewStep;
+    private final Supplier<StrokeFilter> filterSupplier;
+    private final RecognitionListener listener;
+    private final long budgetNanos;
+
+    /**
+     * @param vocabulary matchers producing CanvasActions, in order of priority
+     * @param previewStep number of events before the first preview, and
+     * between previews at least; 0 disables previews and leaves the
+     * decision to the end of the stroke
+     * @param filterSupplier creates the filter for a stroke, or null
+     */
+    public RecognitionEngine(MatcherFactory[] vocabulary, int previewStep, Supplier<StrokeFilter> filterSupplier, RecognitionListener listener) {
+        this(null, vocabulary, previewStep, filterSupplier, listener);
+    }
+
+    /**
+     * @param canvas what the vocabulary may query about the location of a
+     * stroke; may be null
+     */
+    public RecognitionEngine(Canvas canvas, MatcherFactory[] vocabulary, int previewStep, Supplier<StrokeFilter> filterSupplier, RecognitionListener listener) {
+        this(canvas, vocabulary, previewStep, 0, filterSupplier, listener);
+    }
+
+    /**
+     * @param budgetNanos how long the matchers may go without taking an event
+     * from the stroke before it is abandoned; 0 for no limit
+     */
+    public RecognitionEngine(Canvas canvas, MatcherFactory[] vocabulary, int previewStep, long budgetNanos, Supplier<StrokeFilter> filterSupplier, RecognitionListener listener) {
+        this.canvas = canvas;
+        this.vocabulary = vocabulary;
+        this.previewStep = previewStep;
+        this.filterSupplier = filterSupplier;
+        this.listener = listener;
+        this.budgetNanos = budgetNanos;
+    }
+    
+    private Matcher matcherFor(int pointer, int x, int y) {
+        if(previewStep > 0) {
+            return new IncrementalMatcher(canvas, vocabulary, x, y, previewStep, 
+                (progress, preview) -> listener.previewChanged(pointer, (CanvasAction) preview));
+        }
+        
+        if(vocabulary.length == 1) {
+            return vocabulary[0].fromLocation(canvas, x, y);
+        }
+        
+        Matcher[] alternatives = new Matcher[vocabulary.length];
+        for(int i = 0; i < vocabulary.length; i++) {
+            alternatives[i] = vocabulary[i].fromLocation(canvas, x, y);
+        }
+        return Matchers.alt(alternatives);
+    }
+
+    @Override
+    public void recognize(int pointer, int x, int y, PenInput events) throws InterruptedException {
+        listener.strokeStarted(pointer, x, y);
+        
+        long[] moves = new long[1];
+        StrokeEnd strokeEnd = new StrokeEnd(PenInputs.stroke(events, (mx, my) -> {
+            moves[0]++;
+            listener.strokeMoved(pointer, mx, my);
+        }), budgetNanos);
+        PenInput strokeInput = strokeEnd;
+        
+        if(filterSupplier != null) {
+            // Listeners get the raw points; only the matchers see the
+            // filtered ones
+            strokeInput = PenInputs.filtered(strokeInput, filterSupplier.get(), x, y);
+        }
+        
+        RecoverablePenInput input = PenInputs.toRecoverable(strokeInput);
+        Object result = null;
+        boolean abandoned = false;
+        try {
+            result = matcherFor(pointer, x, y).match(input);
+        } catch (MatchCancelledException ex) {
+            if(Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            RecognitionMetrics.get().budgetExceeded();
+            abandoned = true;
+        } catch (LookbackExceededException ex) {
+            RecognitionMetrics.get().lookbackExceeded();
+            abandoned = true;
+        }
+        
+        // The matcher may decide before the pen is lifted. What it has
+        // buffered has been taken from the stroke already, and the stroke
+        // itself is not subject to the cancellation.
+        while(!strokeEnd.atEnd()) {
+            strokeEnd.skip();
+        }
+        
+        if(result != null) {
+            listener.recognized(pointer, (CanvasAction) result);
+        } else if(abandoned) {
+            listener.abandoned(pointer);
+        } else {
+            listener.rejected(pointer);
+        }
+        
+        RecognitionMetrics.get().strokeEnded(moves[0], result, System.nanoTime() - strokeEnd.endedAt);
+    }
+    
+    // Notes when the pen up has been seen, to time the recognition from it,
+    // and counts it as progress against the idle budget of the stroke
+    // whenever the matchers come for more events, as they may have to wait
+    // for the pen
+    private static class StrokeEnd implements PenInput {
+        private final PenInput stroke;
+        private final long budgetNanos;
+        private final Cancellation cancellation;
+        private long endedAt;
+
+        private StrokeEnd(PenInput stroke, long budgetNanos) {
+            this.stroke = stroke;
+            this.budgetNanos = budgetNanos;
+            if(budgetNanos > 0) {
+                cancellation = new Cancellation();
+                cancellation.setIdleBudget(budgetNanos);
+            } else {
+                cancellation = Cancellation.NONE;
+            }
+        }
+
+        @Override
+        public int peekKind() {
+            return stroke.peekKind();
+        }
+
+        @Override
+        public int peekPointer() {
+            return stroke.peekPointer();
+        }
+
+        @Override
+        public int peekX() {
+            return stroke.peekX();
+        }
+
+        @Override
+        public int peekY() {
+            return stroke.peekY();
+        }
+
+        @Override
+        public long peekTime() {
+            return stroke.peekTime();
+        }
+
+        @Override
+        public void skip() {
+            stroke.skip();
+            progressed();
+        }
+
+        @Override
+        public void skip(int count) {
+            stroke.skip(count);
+            progressed();
+        }
+        
+        private void progressed() {
+            if(budgetNanos > 0) {
+                cancellation.progressed();
+            }
+        }
+
+        @Override
+        public boolean atEnd() {
+            boolean atEnd = stroke.atEnd();
+            if(atEnd && endedAt == 0) {
+                endedAt = System.nanoTime();
+            }
+            progressed();
+            return atEnd;
+        }
+
+        @Override
+        public int fill(PenBatch batch) {
+            if(atEnd()) {
+                batch.clear();
+                return 0;
+            }
+            
+            return stroke.fill(batch);
+        }
+
+        @Override
+        public InputState getState() {
+            return stroke.getState();
+        }
+
+        @Override
+        public Cancellation getCancellation() {
+            return cancellation;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+/**
+ * Receives what a {@link RecognitionEngine} makes of the strokes it is fed.
+ * Callbacks for one pointer come from one thread at a time, but different
+ * pointers may be reported from different threads.
+ *
+ * @author jakob
+ */
+public interface RecognitionListener {
+    void strokeStarted(int pointer, int x, int y);
+    void strokeMoved(int pointer, int x, int y);
+    
+    /**
+     * The action the stroke would be recognized as if it ended now, or null
+     * when there is none.
+     */
+    void previewChanged(int pointer, CanvasAction preview);
+    
+    void recognized(int pointer, CanvasAction action);
+    void rejected(int pointer);
+    
+    /**
+     * Recognition of the stroke was given up on, e.g. for running over its
+     * budget. The stroke is neither recognized nor known not to be, so by
+     * default it is treated as rejected.
+     */
+    default void abandoned(int pointer) {
+        rejected(pointer);
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counters and histograms of the recognition hot path. Counters are
+ * {@link LongAdder}s and histograms record into striped buckets, so updating
+ * them seldom contends and they can be left on. The metrics are process
+ * wide, like the matchers updating them, and can be exported through JMX.
+ *
+ * @author jakob
+ */
+public class RecognitionMetrics implements RecognitionMetricsMXBean {
+    private static final RecognitionMetrics INSTANCE = new RecognitionMetrics();
+    
+    private final LongAdder strokes = new LongAdder();
+    private final LongAdder recognized = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder matcherInvocations = new LongAdder();
+    private final LongAdder backtracks = new LongAdder();
+    private final LongAdder lookbacksExceeded = new LongAdder();
+    private final LongAdder budgetsExceeded = new LongAdder();
+    private final Histogram eventsPerStroke = new Histogram();
+    private final Histogram latency = new Histogram();
+    private final ConcurrentHashMap<String, LongAdder> gestureAccepted = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder> gestureFailed = new ConcurrentHashMap<>();
+    
+    private RecognitionMetrics() {
+    }
+    
+    public static RecognitionMetrics get() {
+        return INSTANCE;
+    }
+    
+    /**
+     * Registers the metrics with the platform MBean server as
+     * com.company.cica:type=RecognitionMetrics.
+     */
+    public static void registerMBean() {
+        try {
+            ObjectName name = new ObjectName("com.company.cica:type=RecognitionMetrics");
+            if(!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, name);
+            }
+        } catch (JMException ex) {
+            throw new IllegalStateException("Recognition metrics could not be registered.", ex);
+        }
+    }
+    
+    /**
+     * Wraps a gesture so the invocations of its matchers are counted, and
+     * whether they accept, under the given name.
+     */
+    public static MatcherFactory gesture(String name, MatcherFactory factory) {
+        LongAdder accepted = INSTANCE.gestureAccepted.computeIfAbsent(name, n -> new LongAdder());
+        LongAdder failed = INSTANCE.gestureFailed.computeIfAbsent(name, n -> new LongAdder());
+        
+        return new MatcherFactory() {
+            @Override
+            public Matcher fromLocation(int x, int y) {
+                return counted(factory.fromLocation(x, y), accepted, failed);
+            }
+
+            @Override
+            public Matcher fromLocation(Canvas canvas, int x, int y) {
+                return counted(factory.fromLocation(canvas, x, y), accepted, failed);
+            }
+        };
+    }
+    
+    /**
+     * Counts a single matcher of a gesture under the given name.
+     */
+    public static Matcher gesture(String name, Matcher matcher) {
+        return counted(
+            matcher, 
+            INSTANCE.gestureAccepted.computeIfAbsent(name, n -> new LongAdder()), 
+            INSTANCE.gestureFailed.computeIfAbsent(name, n -> new LongAdder()));
+    }
+    
+    private static Matcher counted(Matcher matcher, LongAdder accepted, LongAdder failed) {
+        return input -> {
+            INSTANCE.matcherInvocations.increment();
+            Object result = matcher.match(input);
+            (result != null ? accepted : failed).increment();
+            return result;
+        };
+    }
+    
+    void backtracked() {
+        backtracks.increment();
+    }
+    
+    void lookbackExceeded() {
+        lookbacksExceeded.increment();
+    }
+    
+    void budgetExceeded() {
+        budgetsExceeded.increment();
+    }
+    
+    void strokeEnded(long events, Object result, long latencyNanos) {
+        strokes.increment();
+        (result != null ? recognized : rejected).increment();
+        eventsPerStroke.record(events);
+        latency.record(latencyNanos);
+    }
+
+    @Override
+    public long getStrokes() {
+        return strokes.sum();
+    }
+
+    @Override
+    public long getRecognized() {
+        return recognized.sum();
+    }
+
+    @Override
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    @Override
+    public long getMatcherInvocations() {
+        return matcherInvocations.sum();
+    }
+
+    @Override
+    public long getBacktracks() {
+        return backtracks.sum();
+    }
+
+    @Override
+    public long getLookbacksExceeded() {
+        return lookbacksExceeded.sum();
+    }
+
+    @Override
+    public long getBudgetsExceeded() {
+        return budgetsExceeded.sum();
+    }
+
+    @Override
+    public double getEventsPerStrokeMean() {
+        return eventsPerStroke.snapshot().getMean();
+    }
+
+    @Override
+    public long getEventsPerStrokeMax() {
+        return eventsPerStroke.snapshot().getMax();
+    }
+
+    @Override
+    public double getLatencyMeanMicros() {
+        return latency.snapshot().getMean() / 1000.0;
+    }
+
+    @Override
+    public long getLatencyP50Micros() {
+        return TimeUnit.NANOSECONDS.toMicros(latency.snapshot().getValueAtPercentile(50));
+    }
+
+    @Override
+    public long getLatencyP99Micros() {
+        return TimeUnit.NANOSECONDS.toMicros(latency.snapshot().getValueAtPercentile(99));
+    }
+
+    @Override
+    public long getLatencyMaxMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(latency.snapshot().getMax());
+    }
+    
+    public Histogram.Snapshot getEventsPerStroke() {
+        return eventsPerStroke.snapshot();
+    }
+    
+    /**
+     * Nanoseconds from the end of a stroke to its result being reported.
+     */
+    public Histogram.Snapshot getLatency() {
+        return latency.snapshot();
+    }
+
+    @Override
+    public Map<String, Long> getGestureAccepted() {
+        return sums(gestureAccepted);
+    }
+
+    @Override
+    public Map<String, Long> getGestureFailed() {
+        return sums(gestureFailed);
+    }
+    
+    private static Map<String, Long> sums(Map<String, LongAdder> counters) {
+        TreeMap<String, Long> sums = new TreeMap<>();
+        counters.forEach((name, counter) -> sums.put(name, counter.sum()));
+        return sums;
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link RecognitionMetrics}. Latencies are in microseconds.
+ *
+ * @author jakob
+ */
+public interface RecognitionMetricsMXBean {
+    long getStrokes();
+    long getRecognized();
+    long getRejected();
+    long getMatcherInvocations();
+    long getBacktracks();
+    
+    /**
+     * Strokes given up on because a matcher went back further than the
+     * lookback window.
+     */
+    long getLookbacksExceeded();
+    
+    /**
+     * Strokes given up on because the matchers ran over the budget of the
+     * engine.
+     */
+    long getBudgetsExceeded();
+    double getEventsPerStrokeMean();
+    long getEventsPerStrokeMax();
+    double getLatencyMeanMicros();
+    long getLatencyP50Micros();
+    long getLatencyP99Micros();
+    long getLatencyMaxMicros();
+    
+    /**
+     * Accepting invocations per gesture.
+     */
+    Map<String, Long> getGestureAccepted();
+    
+    /**
+     * Failing invocations per gesture.
+     */
+    Map<String, Long> getGestureFailed();
+}
@@ -0,0 +1,235 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs every task, such as the recognition of a stroke or the dispatching of
+ * pen events, on a thread of its own. On a JDK with virtual threads these are
+ * virtual, so thousands of pen sessions blocked on their events cost little
+ * more than their buffers; elsewhere they are pooled platform threads.
+ * Virtual threads are looked up reflectively, so the runtime builds and runs
+ * on Java 8 as well.
+ * 
+ * The runtime keeps track of the tasks it runs. {@link #close()} stops
+ * taking new ones, waits a while for the running ones to end, and then
+ * interrupts whatever is left and waits for that to end too.
+ *
+ * @author jakob
+ */
+public class RecognitionRuntime extends AbstractExecutorService implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(RecognitionRuntime.class.getName());
+    private static final long DEFAULT_GRACE_MILLIS = 1000;
+    
+    private final ThreadFactory virtualThreads;
+    private final ExecutorService platformThreads;
+    private final Set<Thread> running = ConcurrentHashMap.newKeySet();
+    private final Object lock = new Object();
+    // Tasks taken and not yet ended, guarded by lock
+    private int active;
+    private boolean shutdown;
+
+    /**
+     * A runtime on virtual threads where the JDK has them.
+     */
+    public RecognitionRuntime(String name) {
+        this(name, true);
+    }
+    
+    public RecognitionRuntime(String name, boolean preferVirtual) {
+        virtualThreads = preferVirtual ? virtualThreadFactory(name) : null;
+        if(virtualThreads == null) {
+            AtomicInteger count = new AtomicInteger();
+            platformThreads = Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, name + "-" + count.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            platformThreads = null;
+        }
+    }
+    
+    // Thread.ofVirtual().name(name + "-", 0).factory(), or null before JDK 21
+    private static ThreadFactory virtualThreadFactory(String name) {
+        try {
+            Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = ofVirtual.invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, name + "-", 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            // Missing, or a preview not enabled
+            return null;
+        }
+    }
+    
+    /**
+     * Whether tasks run on virtual threads.
+     */
+    public boolean isVirtual() {
+        return virtualThreads != null;
+    }
+    
+    /**
+     * The number of tasks taken and not yet ended.
+     */
+    public int activeCount() {
+        synchronized(lock) {
+            return active;
+        }
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        synchronized(lock) {
+            if(shutdown) {
+                throw new RejectedExecutionException("Recognition runtime is shut down.");
+            }
+            active++;
+        }
+        
+        Runnable task = () -> {
+            Thread thread = Thread.currentThread();
+            running.add(thread);
+            try {
+                command.run();
+            } catch (RuntimeException ex) {
+                LOGGER.log(Level.SEVERE, "Task failed", ex);
+            } finally {
+                running.remove(thread);
+                ended();
+            }
+        };
+        
+        try {
+            if(virtualThreads != null) {
+                virtualThreads.newThread(task).start();
+            } else {
+                platformThreads.execute(task);
+            }
+        } catch (RuntimeException | Error ex) {
+            ended();
+            throw ex;
+        }
+    }
+    
+    private void ended() {
+        synchronized(lock) {
+            active--;
+            if(active == 0) {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        synchronized(lock) {
+            shutdown = true;
+            lock.notifyAll();
+        }
+        if(platformThreads != null) {
+            platformThreads.shutdown();
+        }
+    }
+
+    /**
+     * Shuts the runtime down and interrupts the running tasks. Tasks start
+     * as soon as they are taken, so none are ever waiting to be returned.
+     */
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown();
+        running.forEach(Thread::interrupt);
+        return Collections.emptyList();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        synchronized(lock) {
+            return shutdown;
+        }
+    }
+
+    @Override
+    public boolean isTerminated() {
+        synchronized(lock) {
+            return shutdown && active == 0;
+        }
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized(lock) {
+            while(!(shutdown && active == 0)) {
+                long remaining = deadline - System.nanoTime();
+                if(remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+            }
+            return true;
+        }
+    }
+    
+    /**
+     * Shuts down, giving the running tasks a second to end before they are
+     * interrupted.
+     */
+    @Override
+    public void close() {
+        close(DEFAULT_GRACE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+    
+    public void close(long grace, TimeUnit unit) {
+        shutdown();
+        try {
+            if(!awaitTermination(grace, unit)) {
+                shutdownNow();
+                if(!awaitTermination(grace, unit)) {
+                    LOGGER.log(Level.WARNING, "{0} tasks did not end when interrupted", activeCount());
+                }
+            }
+        } catch (InterruptedException ex) {
+            shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+/**
+ * Recoverable cursor over pen events buffered in primitive ring arrays.
+ * {@link #mark()} returns the current position as a plain int; events before
+ * the oldest mark that has not been released (or before the current position
+ * when no marks are live) are let go as the ring fills up.
+ * 
+ * The ring grows up to a maximum lookback, so the memory held for a pen stays
+ * bounded however long it is held down. Past that, the oldest events are
+ * overwritten even if a mark still refers to them, and resetting to such a
+ * mark fails with a {@link LookbackExceededException}. Positions wrap around
+ * like ints do, so a cursor may run indefinitely.
+ * 
+ * The {@link Cancellation} of the source is checked whenever events are
+ * pulled from it and whenever the cursor is reset.
+ *
+ * @author jakob
+ */
+public class RecoverablePenInput implements PenInput {
+    /**
+     * Default maximum lookback, in events; over ten minutes of input at 100
+     * events per second.
+     */
+    public static final int DEFAULT_MAX_LOOKBACK = 1 << 16;
+    
+    private static final int BATCH_SIZE = 64;
+    
+    private final PenInput source;
+    private final Cancellation cancellation;
+    private final int maxCapacity;
+    private int[] kinds;
+    private int[] xs;
+    private int[] ys;
+    private long[] times;
+    private int mask;
+    // Absolute positions; buffered are [base, end)
+    private int base;
+    private int end;
+    private int position;
+    private int[] marks = new int[8];
+    private int markCount;
+    private boolean sourceEnded;
+    private PenBatch incoming;
+
+    public RecoverablePenInput(PenInput source) {
+        this(source, 64);
+    }
+
+    public RecoverablePenInput(PenInput source, int initialCapacity) {
+        this(source, initialCapacity, DEFAULT_MAX_LOOKBACK);
+    }
+
+    /**
+     * @param maxLookback the number of events kept behind the current
+     * position at most; rounded up to a power of two of at least twice the
+     * batch size
+     */
+    public RecoverablePenInput(PenInput source, int initialCapacity, int maxLookback) {
+        this.source = source;
+        this.cancellation = source.getCancellation();
+        this.maxCapacity = powerOfTwo(Math.max(maxLookback, 2 * BATCH_SIZE));
+        int capacity = Math.min(powerOfTwo(Math.max(initialCapacity, 2 * BATCH_SIZE)), maxCapacity);
+        kinds = new int[capacity];
+        xs = new int[capacity];
+        ys = new int[capacity];
+        times = new long[capacity];
+        mask = capacity - 1;
+    }
+    
+    private static int powerOfTwo(int value) {
+        return value > 1 << 30 ? 1 << 30 : Integer.highestOneBit(value - 1) << 1;
+    }
+    
+    public int position() {
+        return position;
+    }
+    
+    public int mark() {
+        if(markCount == marks.length) {
+            int[] newMarks = new int[marks.length * 2];
+            System.arraycopy(marks, 0, newMarks, 0, markCount);
+            marks = newMarks;
+        }
+        marks[markCount++] = position;
+        return position;
+    }
+    
+    public void reset(int mark) {
+        cancellation.throwIfCancelled();
+        if(mark - base < 0) {
+            throw new LookbackExceededException("Cannot reset to " + mark + "; events before " + base + " have been let go.");
+        }
+        if(mark - end > 0) {
+            throw new IllegalStateException("Cannot reset to " + mark + "; buffer holds " + base + ".." + end + ".");
+        }
+        if(mark - position < 0) {
+            RecognitionMetrics.get().backtracked();
+        }
+        position = mark;
+    }
+    
+    public void release(int mark) {
+        for(int i = markCount - 1; i >= 0; i--) {
+            if(marks[i] == mark) {
+                System.arraycopy(marks, i + 1, marks, i, markCount - i - 1);
+                markCount--;
+                return;
+            }
+        }
+    }
+
+    /**
+     * A state holding a mark, which is released when the state is discarded.
+     */
+    @Override
+    public InputState getState() {
+        int mark = mark();
+        
+        return new InputState() {
+            private boolean discarded;
+            
+            @Override
+            public void recover() {
+                reset(mark);
+            }
+
+            @Override
+            public void discard() {
+                if(!discarded) {
+                    discarded = true;
+                    release(mark);
+                }
+            }
+        };
+    }
+
+    @Override
+    public Cancellation getCancellation() {
+        return cancellation;
+    }
+    
+    private boolean ensureBuffered() {
+        while(position == end) {
+            if(sourceEnded || source.atEnd()) {
+                sourceEnded = true;
+                return false;
+            }
+            cancellation.throwIfCancelled();
+            if(incoming == null) {
+                incoming = new PenBatch(BATCH_SIZE);
+            }
+            int count = source.fill(incoming);
+            for(int i = 0; i < count; i++) {
+                append(incoming.kind(i), incoming.x(i), incoming.y(i), incoming.time(i));
+            }
+            source.skip(count);
+        }
+        
+        return true;
+    }
+    
+    private void append(int kind, int x, int y, long time) {
+        if(end - base == kinds.length) {
+            release();
+            if(end - base == kinds.length) {
+                if(kinds.length < maxCapacity) {
+                    grow();
+                } else {
+                    // Spill: the oldest event goes, whoever may want it back
+                    base++;
+                }
+            }
+        }
+        
+        int i = end & mask;
+        kinds[i] = kind;
+        xs[i] = x;
+        ys[i] = y;
+        times[i] = time;
+        end++;
+    }
+    
+    private void release() {
+        int keepFrom = position;
+        for(int i = 0; i < markCount; i++) {
+            if(marks[i] - keepFrom < 0) {
+                keepFrom = marks[i];
+            }
+        }
+        
+        if(keepFrom - base > 0) {
+            base = keepFrom;
+        }
+    }
+    
+    private void grow() {
+        int capacity = kinds.length * 2;
+        int[] newKinds = new int[capacity];
+        int[] newXs = new int[capacity];
+        int[] newYs = new int[capacity];
+        long[] newTimes = new long[capacity];
+        int newMask = capacity - 1;
+        
+        for(int p = base; p != end; p++) {
+            newKinds[p & newMask] = kinds[p & mask];
+            newXs[p & newMask] = xs[p & mask];
+            newYs[p & newMask] = ys[p & mask];
+            newTimes[p & newMask] = times[p & mask];
+        }
+        
+        kinds = newKinds;
+        xs = newXs;
+        ys = newYs;
+        times = newTimes;
+        mask = newMask;
+    }
+    
+    private int slot() {
+        if(!ensureBuffered()) {
+            throw new IllegalStateException("End of input.");
+        }
+        
+        return position & mask;
+    }
+
+    @Override
+    public int peekKind() {
+        return kinds[slot()];
+    }
+
+    @Override
+    public int peekX() {
+        return xs[slot()];
+    }
+
+    @Override
+    public int peekY() {
+        return ys[slot()];
+    }
+
+    @Override
+    public long peekTime() {
+        return times[slot()];
+    }
+
+    @Override
+    public void skip() {
+        if(ensureBuffered()) {
+            position++;
+        }
+    }
+
+    @Override
+    public boolean atEnd() {
+        return !ensureBuffered();
+    }
+
+    @Override
+    public int fill(PenBatch batch) {
+        if(!ensureBuffered()) {
+            batch.clear();
+            return 0;
+        }
+        
+        // Up to where the ring wraps around
+        int offset = position & mask;
+        int count = Math.min(Math.min(end - position, kinds.length - offset), batch.capacity());
+        batch.set(kinds, null, xs, ys, times, offset, count);
+        return count;
+    }
+
+    @Override
+    public void skip(int count) {
+        while(count > 0 && ensureBuffered()) {
+            int step = Math.min(count, end - position);
+            position += step;
+            count -= step;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import java.awt.Rectangle;
+
+/**
+ * The corners of a stroke and the stretches between them, as found by a
+ * {@link CornerDetector}. The edges run from the start of the stroke through
+ * its corners to its end; each has a straightness, one less the farthest
+ * the path it stands for strays from it, relative to its length.
+ * 
+ * A closed stroke is also seen as a polygon. Where the stroke starts on a
+ * corner, the corners of the polygon are the start and the corners of the
+ * stroke; where it starts along a side, the first and last edges are that one
+ * side. The turns at the corners of the polygon are signed, clockwise being
+ * positive.
+ * 
+ * Instances are immutable and may be shared by any number of shape matchers.
+ *
+ * @author jakob
+ */
+public final class SegmentGraph {
+    private static final double CORNER_ANGLE = 45.0;
+    
+    private final Segments edges;
+    private final double[] straightness;
+    private final boolean closed;
+    private final double length;
+    private final Rectangle bounds;
+    private final int[] cornerXs;
+    private final int[] cornerYs;
+    private final double[] turns;
+
+    SegmentGraph(Segments edges, double[] straightness, boolean closed, double length, int minX, int minY, int maxX, int maxY) {
+        this.edges = edges;
+        this.straightness = straightness;
+        this.closed = closed;
+        this.length = length;
+        bounds = new Rectangle(minX, minY, maxX - minX, maxY - minY);
+        
+        int edgeCount = edges.count();
+        if(closed) {
+            boolean startsOnCorner = sharp(signedTurn(edges.direction(edgeCount - 1), edges.direction(0)));
+            int first = startsOnCorner ? 0 : 1;
+            int sides = edgeCount - first;
+            cornerXs = new int[sides];
+            cornerYs = new int[sides];
+            turns = new double[sides];
+            for(int i = 0; i < sides; i++) {
+                cornerXs[i] = edges.x1(first + i);
+                cornerYs[i] = edges.y1(first + i);
+            }
+            for(int i = 0; i < sides; i++) {
+                int previous = (i + sides - 1) % sides;
+                turns[i] = signedTurn(
+                    Geometry.direction(cornerXs[previous], cornerYs[previous], cornerXs[i], cornerYs[i]), 
+                    Geometry.direction(cornerXs[i], cornerYs[i], cornerXs[(i + 1) % sides], cornerYs[(i + 1) % sides]));
+            }
+        } else {
+            cornerXs = new int[edgeCount + 1];
+            cornerYs = new int[edgeCount + 1];
+            turns = new double[edgeCount + 1];
+            for(int i = 0; i < edgeCount; i++) {
+                cornerXs[i] = edges.x1(i);
+                cornerYs[i] = edges.y1(i);
+                if(i > 0) {
+                    turns[i] = signedTurn(edges.direction(i - 1), edges.direction(i));
+                }
+            }
+            cornerXs[edgeCount] = edges.x2(edgeCount - 1);
+            cornerYs[edgeCount] = edges.y2(edgeCount - 1);
+        }
+    }
+    
+    private static double signedTurn(double from, double to) {
+        double turn = Geometry.turn(from, to);
+        return turn > 180 ? turn - 360 : turn;
+    }
+    
+    private static boolean sharp(double turn) {
+        return Math.abs(turn) >= CORNER_ANGLE;
+    }
+    
+    /**
+     * The edges from the start of the stroke through its corners to its end.
+     */
+    public Segments getEdges() {
+        return edges;
+    }
+    
+    public int getEdgeCount() {
+        return edges.count();
+    }
+    
+    public double getStraightness(int edge) {
+        return straightness[edge];
+    }
+    
+    /**
+     * The straightness of the least straight edge.
+     */
+    public double getMinStraightness() {
+        double min = 1.0;
+        for(int i = 0; i < straightness.length; i++) {
+            min = Math.min(min, straightness[i]);
+        }
+        return min;
+    }
+    
+    public boolean isClosed() {
+        return closed;
+    }
+    
+    /**
+     * The length of the stroke along its path.
+     */
+    public double getLength() {
+        return length;
+    }
+    
+    public Rectangle getBounds() {
+        return new Rectangle(bounds);
+    }
+    
+    /**
+     * The number of sides of the polygon if the stroke is closed, and
+     * otherwise the number of edges.
+     */
+    public int getSideCount() {
+        return closed ? cornerXs.length : edges.count();
+    }
+    
+    /**
+     * The corners of the polygon if the stroke is closed, and otherwise the
+     * ends and corners of the stroke in order.
+     */
+    public int[] getCornerXs() {
+        return cornerXs.clone();
+    }
+    
+    public int[] getCornerYs() {
+        return cornerYs.clone();
+    }
+    
+    /**
+     * The signed turn at the given corner; the ends of an open stroke do not
+     * turn.
+     */
+    public double getTurn(int corner) {
+        return turns[corner];
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import java.util.Arrays;
+
+/**
+ * The segments of a polyline, with their directions and lengths computed
+ * once up front. Instances are immutable and may be shared between threads.
+ *
+ * @author jakob
+ */
+public final class Segments {
+    private final int[] xs;
+    private final int[] ys;
+    private final double[] directions;
+    private final double[] lengths;
+    private final double totalLength;
+
+    private Segments(int[] xs, int[] ys) {
+        this.xs = xs;
+        this.ys = ys;
+        int count = Math.max(xs.length - 1, 0);
+        directions = new double[count];
+        lengths = new double[count];
+        Geometry.directions(xs, ys, 0, count, directions);
+        Geometry.lengths(xs, ys, 0, count, lengths);
+        
+        double sum = 0;
+        for(int i = 0; i < count; i++) {
+            sum += lengths[i];
+        }
+        totalLength = sum;
+    }
+    
+    /**
+     * The segments between the first pointCount points.
+     */
+    public static Segments of(int[] xs, int[] ys, int pointCount) {
+        return new Segments(Arrays.copyOf(xs, pointCount), Arrays.copyOf(ys, pointCount));
+    }
+    
+    public int count() {
+        return directions.length;
+    }
+    
+    public int x1(int i) {
+        return xs[i];
+    }
+    
+    public int y1(int i) {
+        return ys[i];
+    }
+    
+    public int x2(int i) {
+        return xs[i + 1];
+    }
+    
+    public int y2(int i) {
+        return ys[i + 1];
+    }
+    
+    public double direction(int i) {
+        return directions[i];
+    }
+    
+    public double length(int i) {
+        return lengths[i];
+    }
+    
+    public double totalLength() {
+        return totalLength;
+    }
+    
+    /**
+     * The clockwise turn from segment i - 1 to segment i.
+     */
+    public double turn(int i) {
+        return Geometry.turn(directions[i - 1], directions[i]);
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+/**
+ * Shapes read off the {@link SegmentGraph} of a stroke. The graph is built in
+ * a single pass, however many shapes are then tried against it, so adding a
+ * shape costs no more than its test of the corners.
+ *
+ * @author jakob
+ */
+public final class Shapes {
+    // The least straightness of the sides of a polygon
+    private static final double MIN_STRAIGHTNESS = 0.85;
+    private static final double MIN_LINE_STRAIGHTNESS = 0.85;
+    // How far the corners of a rectangle may be from right angles
+    private static final double RIGHT_ANGLE_TOLERANCE = 30.0;
+    
+    private Shapes() {
+    }
+    
+    public interface Shape {
+        /**
+         * The result of the stroke if it has this shape, and otherwise null.
+         */
+        Object recognize(SegmentGraph graph);
+    }
+    
+    public interface Reduction {
+        Object reduce(int[] cornerXs, int[] cornerYs);
+    }
+    
+    /**
+     * A matcher for a stroke starting at (x, y) that reads it to its end,
+     * builds its graph and answers with the first of the shapes to recognize
+     * it.
+     */
+    public static Matcher matcher(int x, int y, Shape... shapes) {
+        return new Matcher() {
+            @Override
+            public Object match(Input input) throws InterruptedException {
+                SegmentGraph graph = read(PenInputs.asPenInput(input), x, y);
+                if(graph == null) {
+                    return null;
+                }
+                
+                for(Shape shape : shapes) {
+                    Object result = shape.recognize(graph);
+                    if(result != null) {
+                        return result;
+                    }
+                }
+                
+                return null;
+            }
+        };
+    }
+    
+    /**
+     * Reads the moves of a stroke starting at (x, y) to its end; null if the
+     * stroke holds anything but moves.
+     */
+    public static SegmentGraph read(PenInput input, int x, int y) {
+        CornerDetector detector = new CornerDetector();
+        detector.reset(x, y);
+        
+        PenBatch batch = new PenBatch(64);
+        int count;
+        while((count = input.fill(batch)) > 0) {
+            for(int i = 0; i < count; i++) {
+                if(batch.kind(i) != PenEvents.MOVED) {
+                    return null;
+                }
+                detector.point(batch.x(i), batch.y(i));
+            }
+            input.skip(count);
+        }
+        
+        return input.atEnd() ? detector.end() : null;
+    }
+    
+    /**
+     * An open stroke without corners that is close to straight; reduced to
+     * its ends.
+     */
+    public static Shape line(Reduction reduction) {
+        return graph -> {
+            if(graph.isClosed() || graph.getEdgeCount() != 1 || graph.getStraightness(0) < MIN_LINE_STRAIGHTNESS) {
+                return null;
+            }
+            
+            return reduction.reduce(graph.getCornerXs(), graph.getCornerYs());
+        };
+    }
+    
+    /**
+     * A closed stroke with the given number of straight sides that turns the
+     * same way at each corner; reduced to its corners.
+     */
+    public static Shape polygon(int sides, Reduction reduction) {
+        return graph -> isConvexPolygon(graph, sides) 
+            ? reduction.reduce(graph.getCornerXs(), graph.getCornerYs()) 
+            : null;
+    }
+    
+    public static Shape triangle(Reduction reduction) {
+        return polygon(3, reduction);
+    }
+    
+    /**
+     * A four sided polygon with corners close to right angles.
+     */
+    public static Shape rectangle(Reduction reduction) {
+        return graph -> {
+            if(!isConvexPolygon(graph, 4)) {
+                return null;
+            }
+            
+            for(int i = 0; i < 4; i++) {
+                if(Math.abs(Math.abs(graph.getTurn(i)) - 90) > RIGHT_ANGLE_TOLERANCE) {
+                    return null;
+                }
+            }
+            
+            return reduction.reduce(graph.getCornerXs(), graph.getCornerYs());
+        };
+    }
+    
+    private static boolean isConvexPolygon(SegmentGraph graph, int sides) {
+        if(!graph.isClosed() || graph.getSideCount() != sides || graph.getMinStraightness() < MIN_STRAIGHTNESS) {
+            return false;
+        }
+        
+        boolean clockwise = graph.getTurn(0) > 0;
+        for(int i = 0; i < sides; i++) {
+            if(graph.getTurn(i) == 0 || graph.getTurn(i) > 0 != clockwise) {
+                return false;
+            }
+        }
+        
+        return true;
+    }
+}
@@ -0,0 +1,310 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.function.Consumer;
+
+/**
+ * Uniform grid over axis aligned bounding boxes. Each entry is filed in every
+ * cell its bounds overlap, so a query only looks at the cells around the
+ * area asked for, however many entries the grid holds. Entries are handles:
+ * updating or removing one touches only its own cells, and removal from a
+ * cell swaps the last entry of the cell into its place. Entries spanning more
+ * than a few cells are kept in a separate list scanned by every query.
+ * 
+ * Not thread safe; callers must synchronize.
+ *
+ * @author jakob
+ * @param <T> the type of the indexed values
+ */
+public class SpatialGrid<T> {
+    private static final int MAX_CELLS_PER_ENTRY = 64;
+    
+    public static final class Entry<T> {
+        private final SpatialGrid<T> grid;
+        private final T value;
+        private int minX;
+        private int minY;
+        private int maxX;
+        private int maxY;
+        private int cellMinX;
+        private int cellMinY;
+        private int cellMaxX;
+        private int cellMaxY;
+        private Cell[] filedIn = new Cell[4];
+        private int[] slots = new int[4];
+        private int cellCount;
+        private int stamp;
+        private boolean removed;
+
+        private Entry(SpatialGrid<T> grid, T value) {
+            this.grid = grid;
+            this.value = value;
+        }
+
+        public T getValue() {
+            return value;
+        }
+        
+        /**
+         * Moves the entry to new bounds; cheap when the bounds stay within
+         * the same cells.
+         */
+        public void update(int minX, int minY, int maxX, int maxY) {
+            if(removed) {
+                throw new IllegalStateException("Entry has been removed");
+            }
+            
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+            
+            if(grid.cellOf(minX) != cellMinX || grid.cellOf(minY) != cellMinY || grid.cellOf(maxX) != cellMaxX || grid.cellOf(maxY) != cellMaxY) {
+                unfile();
+                file();
+            }
+        }
+        
+        public void remove() {
+            if(!removed) {
+                unfile();
+                removed = true;
+                grid.size--;
+            }
+        }
+        
+        private void file() {
+            cellMinX = grid.cellOf(minX);
+            cellMinY = grid.cellOf(minY);
+            cellMaxX = grid.cellOf(maxX);
+            cellMaxY = grid.cellOf(maxY);
+            
+            long cellsCovered = (long)(cellMaxX - cellMinX + 1) * (cellMaxY - cellMinY + 1);
+            if(cellsCovered > MAX_CELLS_PER_ENTRY) {
+                grid.large.add(this);
+                return;
+            }
+            
+            for(int cy = cellMinY; cy <= cellMaxY; cy++) {
+                for(int cx = cellMinX; cx <= cellMaxX; cx++) {
+                    grid.cells.computeIfAbsent(key(cx, cy), k -> new Cell(k)).add(this);
+                }
+            }
+        }
+        
+        private void unfile() {
+            while(cellCount > 0) {
+                cellCount--;
+                Cell cell = filedIn[cellCount];
+                filedIn[cellCount] = null;
+                cell.removeAt(slots[cellCount]);
+                
+                if(cell.size == 0 && cell.key != null) {
+                    grid.cells.remove(cell.key);
+                }
+            }
+        }
+        
+        private void addedTo(Cell cell, int slot) {
+            if(cellCount == filedIn.length) {
+                filedIn = Arrays.copyOf(filedIn, cellCount * 2);
+                slots = Arrays.copyOf(slots, cellCount * 2);
+            }
+            filedIn[cellCount] = cell;
+            slots[cellCount] = slot;
+            cellCount++;
+        }
+        
+        private void movedWithin(Cell cell, int slot) {
+            for(int i = 0; i < cellCount; i++) {
+                if(filedIn[i] == cell) {
+                    slots[i] = slot;
+                    return;
+                }
+            }
+        }
+        
+        private long distanceSquared(int x, int y) {
+            long dx = x < minX ? minX - x : x > maxX ? x - maxX : 0;
+            long dy = y < minY ? minY - y : y > maxY ? y - maxY : 0;
+            return dx * dx + dy * dy;
+        }
+        
+        private boolean overlaps(int minX, int minY, int maxX, int maxY) {
+            return this.minX <= maxX && minX <= this.maxX && this.minY <= maxY && minY <= this.maxY;
+        }
+    }
+    
+    private static final class Cell {
+        // Null for the list of large entries, which is never dropped
+        private final Long key;
+        private Object[] entries = new Object[4];
+        private int size;
+
+        private Cell(Long key) {
+            this.key = key;
+        }
+        
+        private void add(Entry<?> entry) {
+            if(size == entries.length) {
+                entries = Arrays.copyOf(entries, size * 2);
+            }
+            entries[size] = entry;
+            entry.addedTo(this, size);
+            size++;
+        }
+        
+        private Entry<?> get(int slot) {
+            return (Entry<?>)entries[slot];
+        }
+        
+        private void removeAt(int slot) {
+            size--;
+            if(slot != size) {
+                Entry<?> last = get(size);
+                entries[slot] = last;
+                last.movedWithin(this, slot);
+            }
+            entries[size] = null;
+        }
+    }
+    
+    private final int cellShift;
+    private final HashMap<Long, Cell> cells = new HashMap<>();
+    private final Cell large = new Cell(null);
+    private int size;
+    private int stamp;
+
+    /**
+     * @param cellSize side of a cell; rounded up to a power of two
+     */
+    public SpatialGrid(int cellSize) {
+        if(cellSize < 1) {
+            throw new IllegalArgumentException("cellSize must be positive");
+        }
+        cellShift = 32 - Integer.numberOfLeadingZeros(cellSize - 1);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private Entry<T> entryOf(Cell cell, int slot) {
+        // Cells only ever hold entries of this grid
+        return (Entry<T>)cell.get(slot);
+    }
+    
+    private int cellOf(int coordinate) {
+        return coordinate >> cellShift;
+    }
+    
+    private static long key(int cellX, int cellY) {
+        return ((long)cellX << 32) | (cellY & 0xFFFFFFFFL);
+    }
+    
+    public Entry<T> add(T value, int minX, int minY, int maxX, int maxY) {
+        Entry<T> entry = new Entry<>(this, value);
+        entry.minX = minX;
+        entry.minY = minY;
+        entry.maxX = maxX;
+        entry.maxY = maxY;
+        entry.file();
+        size++;
+        return entry;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * Calls action with every value whose bounds overlap the given area.
+     * The action must not modify the grid.
+     */
+    public void query(int minX, int minY, int maxX, int maxY, Consumer<? super T> action) {
+        int queryStamp = ++stamp;
+        
+        for(int cy = cellOf(minY), cellMaxY = cellOf(maxY); cy <= cellMaxY; cy++) {
+            for(int cx = cellOf(minX), cellMaxX = cellOf(maxX); cx <= cellMaxX; cx++) {
+                Cell cell = cells.get(key(cx, cy));
+                if(cell != null) {
+                    visit(cell, queryStamp, minX, minY, maxX, maxY, action);
+                }
+            }
+        }
+        visit(large, queryStamp, minX, minY, maxX, maxY, action);
+    }
+    
+    private void visit(Cell cell, int queryStamp, int minX, int minY, int maxX, int maxY, Consumer<? super T> action) {
+        for(int i = 0; i < cell.size; i++) {
+            Entry<T> entry = entryOf(cell, i);
+            if(entry.stamp != queryStamp) {
+                entry.stamp = queryStamp;
+                if(entry.overlaps(minX, minY, maxX, maxY)) {
+                    action.accept(entry.value);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Finds the value whose bounds are nearest to the given point, at most
+     * radius away, or null if there is none.
+     */
+    public T nearest(int x, int y, int radius) {
+        int queryStamp = ++stamp;
+        long best = (long)radius * radius;
+        Entry<T> nearest = null;
+        
+        for(int cy = cellOf(y - radius), cellMaxY = cellOf(y + radius); cy <= cellMaxY; cy++) {
+            for(int cx = cellOf(x - radius), cellMaxX = cellOf(x + radius); cx <= cellMaxX; cx++) {
+                Cell cell = cells.get(key(cx, cy));
+                if(cell != null) {
+                    nearest = nearest(cell, queryStamp, x, y, nearest, best);
+                    if(nearest != null) {
+                        best = nearest.distanceSquared(x, y);
+                    }
+                }
+            }
+        }
+        nearest = nearest(large, queryStamp, x, y, nearest, best);
+        
+        return nearest != null ? nearest.value : null;
+    }
+    
+    private Entry<T> nearest(Cell cell, int queryStamp, int x, int y, Entry<T> nearest, long best) {
+        for(int i = 0; i < cell.size; i++) {
+            Entry<T> entry = entryOf(cell, i);
+            if(entry.stamp != queryStamp) {
+                entry.stamp = queryStamp;
+                long distance = entry.distanceSquared(x, y);
+                if(distance <= best) {
+                    nearest = entry;
+                    best = distance;
+                }
+            }
+        }
+        return nearest;
+    }
+}
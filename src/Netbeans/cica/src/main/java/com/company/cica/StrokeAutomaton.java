@@ -0,0 +1,270 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import java.util.Arrays;
+
+/**
+ * Flat, table driven form of the line segment sequence combinators. A stroke
+ * is described as a number of legs, each a run of segments that keep the
+ * direction of the leg's first segment, with a turn constraint between
+ * consecutive legs and an optional closure check. The tables are built once
+ * and are shared; each stroke is matched by a {@link Run} that only holds
+ * primitive state, so feeding it events does not allocate.
+ *
+ * @author jakob
+ */
+public class StrokeAutomaton {
+    public interface Reduction {
+        Object reduce(int[] cornerXs, int[] cornerYs);
+    }
+    
+    private static final int FAILED = -1;
+    
+    private final int legCount;
+    private final double[] minTurns;
+    private final double[] maxTurns;
+    private final int minSegmentDistanceSquared;
+    private final double maxDeviation;
+    private final double closeTolerance;
+
+    private StrokeAutomaton(double[] minTurns, double[] maxTurns, int segmentLength, double maxDeviation, double closeTolerance) {
+        this.legCount = minTurns.length;
+        this.minTurns = minTurns;
+        this.maxTurns = maxTurns;
+        // Same as (int)Math.hypot(dx, dy) > segmentLength
+        this.minSegmentDistanceSquared = (segmentLength + 1) * (segmentLength + 1);
+        this.maxDeviation = maxDeviation;
+        this.closeTolerance = closeTolerance;
+    }
+    
+    public static Builder builder() {
+        return new Builder();
+    }
+    
+    public static class Builder {
+        private double[] minTurns = new double[0];
+        private double[] maxTurns = new double[0];
+        private int segmentLength = 10;
+        private double maxDeviation = 30.0;
+        private double closeTolerance = Double.NaN;
+        
+        public Builder segmentLength(int segmentLength) {
+            this.segmentLength = segmentLength;
+            return this;
+        }
+        
+        public Builder maxDeviation(double maxDeviation) {
+            this.maxDeviation = maxDeviation;
+            return this;
+        }
+        
+        public Builder leg() {
+            return leg(-360, 360);
+        }
+        
+        public Builder leg(double minTurn, double maxTurn) {
+            minTurns = Arrays.copyOf(minTurns, minTurns.length + 1);
+            maxTurns = Arrays.copyOf(maxTurns, maxTurns.length + 1);
+            minTurns[minTurns.length - 1] = minTurn;
+            maxTurns[maxTurns.length - 1] = maxTurn;
+            return this;
+        }
+        
+        public Builder closed(double tolerance) {
+            this.closeTolerance = tolerance;
+            return this;
+        }
+        
+        public StrokeAutomaton build() {
+            if(minTurns.length == 0) {
+                throw new IllegalStateException("A stroke needs at least one leg.");
+            }
+            
+            return new StrokeAutomaton(minTurns.clone(), maxTurns.clone(), segmentLength, maxDeviation, closeTolerance);
+        }
+    }
+    
+    public Run newRun() {
+        return new Run();
+    }
+    
+    public Matcher matcher(int x, int y, Reduction reduction) {
+        return new Matcher() {
+            @Override
+            public Object match(Input input) throws InterruptedException {
+                PenInput penInput = PenInputs.asPenInput(input);
+                Run run = newRun();
+                run.reset(x, y);
+                
+                while(!penInput.atEnd() && penInput.peekKind() == PenEvents.MOVED) {
+                    int x2 = penInput.peekX();
+                    int y2 = penInput.peekY();
+                    penInput.skip();
+                    
+                    if(!run.moveTo(x2, y2)) {
+                        return null;
+                    }
+                }
+                
+                if(!penInput.atEnd() || !run.end()) {
+                    return null;
+                }
+                
+                return reduction.reduce(
+                    Arrays.copyOf(run.cornerXs, legCount + 1), 
+                    Arrays.copyOf(run.cornerYs, legCount + 1));
+            }
+        };
+    }
+    
+    /**
+     * State of one stroke being fed through the automaton. The state is the
+     * index of the current leg, legCount once the last leg has been closed,
+     * or FAILED.
+     */
+    public class Run {
+        private int state;
+        private int segmentStartX;
+        private int segmentStartY;
+        private boolean pending;
+        private int lastX;
+        private int lastY;
+        private boolean legStarted;
+        private double legReferenceDirection;
+        private double previousLegDirection;
+        private final int[] cornerXs = new int[legCount + 1];
+        private final int[] cornerYs = new int[legCount + 1];
+        
+        public void reset(int x, int y) {
+            state = 0;
+            segmentStartX = x;
+            segmentStartY = y;
+            pending = false;
+            legStarted = false;
+            cornerXs[0] = x;
+            cornerYs[0] = y;
+        }
+        
+        public boolean moveTo(int x, int y) {
+            if(state == FAILED) {
+                return false;
+            }
+            if(state == legCount) {
+                state = FAILED;
+                return false;
+            }
+            
+            lastX = x;
+            lastY = y;
+            int dx = x - segmentStartX;
+            int dy = y - segmentStartY;
+            
+            if(dx * dx + dy * dy >= minSegmentDistanceSquared) {
+                pending = false;
+                segment(x, y);
+            } else {
+                pending = true;
+            }
+            
+            return state != FAILED;
+        }
+        
+        public boolean end() {
+            if(pending) {
+                pending = false;
+                segment(lastX, lastY);
+            }
+            
+            if(state == legCount - 1 && legStarted) {
+                closeLeg();
+            }
+            
+            return state == legCount && closes();
+        }
+        
+        public int state() {
+            return state;
+        }
+        
+        private void segment(int x, int y) {
+            double direction = Geometry.direction(segmentStartX, segmentStartY, x, y);
+            
+            if(!legStarted) {
+                legStarted = true;
+                legReferenceDirection = direction;
+                accept(x, y);
+            } else if(Geometry.deviation(legReferenceDirection, direction) <= maxDeviation) {
+                accept(x, y);
+            } else {
+                // The deviating segment is dropped; the next leg starts where
+                // this one ended
+                closeLeg();
+                if(state != FAILED) {
+                    segmentStartX = cornerXs[state];
+                    segmentStartY = cornerYs[state];
+                }
+            }
+        }
+        
+        private void accept(int x, int y) {
+            segmentStartX = x;
+            segmentStartY = y;
+            cornerXs[state + 1] = x;
+            cornerYs[state + 1] = y;
+        }
+        
+        private void closeLeg() {
+            double direction = Geometry.direction(
+                cornerXs[state], cornerYs[state], 
+                cornerXs[state + 1], cornerYs[state + 1]);
+            
+            if(state > 0) {
+                double turn = Geometry.turn(previousLegDirection, direction);
+                if(turn < minTurns[state] || turn > maxTurns[state]) {
+                    state = FAILED;
+                    return;
+                }
+            }
+            
+            previousLegDirection = direction;
+            legStarted = false;
+            state++;
+        }
+        
+        private boolean closes() {
+            if(Double.isNaN(closeTolerance)) {
+                return true;
+            }
+            
+            double maxDelta = Geometry.distance(
+                cornerXs[1], cornerYs[1], 
+                cornerXs[legCount - 1], cornerYs[legCount - 1]) * closeTolerance;
+            int deltaX = Math.abs(cornerXs[0] - cornerXs[legCount]);
+            int deltaY = Math.abs(cornerYs[0] - cornerYs[legCount]);
+            
+            return deltaX <= maxDelta && deltaY <= maxDelta;
+        }
+    }
+}
@@ -0,0 +1,322 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import java.util.Arrays;
+
+/**
+ *
+ * @author jakob
+ */
+public class StrokeFilters {
+    /**
+     * Drops points closer than minDistance to the last point passed on. The
+     * last point of the stroke is always passed on.
+     */
+    public static StrokeFilter decimate(int minDistance) {
+        int minDistanceSquared = minDistance * minDistance;
+        
+        return new StrokeFilter() {
+            private int lastX;
+            private int lastY;
+            private boolean held;
+            private int heldX;
+            private int heldY;
+            private long heldTime;
+            
+            @Override
+            public void reset(int x, int y) {
+                lastX = x;
+                lastY = y;
+                held = false;
+            }
+
+            @Override
+            public void point(int x, int y, long time, Sink sink) {
+                int dx = x - lastX;
+                int dy = y - lastY;
+                
+                if(dx * dx + dy * dy >= minDistanceSquared) {
+                    lastX = x;
+                    lastY = y;
+                    held = false;
+                    sink.point(x, y, time);
+                } else {
+                    held = true;
+                    heldX = x;
+                    heldY = y;
+                    heldTime = time;
+                }
+            }
+
+            @Override
+            public void end(Sink sink) {
+                if(held) {
+                    held = false;
+                    sink.point(heldX, heldY, heldTime);
+                }
+            }
+        };
+    }
+    
+    /**
+     * Exponential smoothing of the points; alpha is the weight of the newest
+     * point. The stroke still ends at its last raw point.
+     */
+    public static StrokeFilter smooth(double alpha) {
+        return new StrokeFilter() {
+            private double x;
+            private double y;
+            private boolean any;
+            private int lastX;
+            private int lastY;
+            private long lastTime;
+            
+            @Override
+            public void reset(int x, int y) {
+                this.x = x;
+                this.y = y;
+                any = false;
+            }
+
+            @Override
+            public void point(int x, int y, long time, Sink sink) {
+                this.x += alpha * (x - this.x);
+                this.y += alpha * (y - this.y);
+                any = true;
+                lastX = x;
+                lastY = y;
+                lastTime = time;
+                sink.point((int)Math.round(this.x), (int)Math.round(this.y), time);
+            }
+
+            @Override
+            public void end(Sink sink) {
+                if(any && (lastX != (int)Math.round(x) || lastY != (int)Math.round(y))) {
+                    sink.point(lastX, lastY, lastTime);
+                }
+            }
+        };
+    }
+    
+    /**
+     * Passes on points evenly spaced along the path of the stroke.
+     */
+    public static StrokeFilter resample(double spacing) {
+        return new StrokeFilter() {
+            private double prevX;
+            private double prevY;
+            private double travelled;
+            private int lastX;
+            private int lastY;
+            private long lastTime;
+            private boolean lastSent;
+            
+            @Override
+            public void reset(int x, int y) {
+                prevX = x;
+                prevY = y;
+                travelled = 0;
+                lastSent = true;
+            }
+
+            @Override
+            public void point(int x, int y, long time, Sink sink) {
+                double dx = x - prevX;
+                double dy = y - prevY;
+                double length = Math.sqrt(dx * dx + dy * dy);
+                
+                lastX = x;
+                lastY = y;
+                lastTime = time;
+                lastSent = false;
+                
+                double offset = spacing - travelled;
+                while(offset <= length) {
+                    double t = offset / length;
+                    int px = (int)Math.round(prevX + dx * t);
+                    int py = (int)Math.round(prevY + dy * t);
+                    sink.point(px, py, time);
+                    lastSent = px == x && py == y;
+                    offset += spacing;
+                }
+                
+                travelled = length - (offset - spacing);
+                prevX = x;
+                prevY = y;
+            }
+
+            @Override
+            public void end(Sink sink) {
+                if(!lastSent) {
+                    lastSent = true;
+                    sink.point(lastX, lastY, lastTime);
+                }
+            }
+        };
+    }
+    
+    /**
+     * Ramer-Douglas-Peucker simplification over a sliding window of at most
+     * window points, so the lookahead (and the delay before a point is passed
+     * on) stays bounded.
+     */
+    public static StrokeFilter simplify(double tolerance, int window) {
+        double toleranceSquared = tolerance * tolerance;
+        
+        return new StrokeFilter() {
+            private final int[] xs = new int[window];
+            private final int[] ys = new int[window];
+            private final long[] times = new long[window];
+            private final boolean[] keep = new boolean[window];
+            private int count;
+            
+            @Override
+            public void reset(int x, int y) {
+                xs[0] = x;
+                ys[0] = y;
+                count = 1;
+            }
+
+            @Override
+            public void point(int x, int y, long time, Sink sink) {
+                xs[count] = x;
+                ys[count] = y;
+                times[count] = time;
+                count++;
+                
+                if(count == window) {
+                    flush(sink, false);
+                }
+            }
+
+            @Override
+            public void end(Sink sink) {
+                if(count > 1) {
+                    flush(sink, true);
+                }
+            }
+            
+            private void flush(Sink sink, boolean last) {
+                int end = count - 1;
+                for(int i = 0; i <= end; i++) {
+                    keep[i] = false;
+                }
+                keep[0] = true;
+                keep[end] = true;
+                mark(0, end);
+                
+                // Everything up to the last kept point before the end is
+                // settled; the rest stays for the next window
+                int anchor = 0;
+                for(int i = 1; i < end; i++) {
+                    if(keep[i]) {
+                        sink.point(xs[i], ys[i], times[i]);
+                        anchor = i;
+                    }
+                }
+                
+                if(last || anchor == 0) {
+                    sink.point(xs[end], ys[end], times[end]);
+                    anchor = end;
+                }
+                
+                int remaining = count - anchor;
+                System.arraycopy(xs, anchor, xs, 0, remaining);
+                System.arraycopy(ys, anchor, ys, 0, remaining);
+                System.arraycopy(times, anchor, times, 0, remaining);
+                count = remaining;
+            }
+            
+            private void mark(int from, int to) {
+                if(to - from < 2) {
+                    return;
+                }
+                
+                double dx = xs[to] - xs[from];
+                double dy = ys[to] - ys[from];
+                double lengthSquared = dx * dx + dy * dy;
+                double maxDistanceSquared = -1;
+                int farthest = -1;
+                
+                for(int i = from + 1; i < to; i++) {
+                    double px = xs[i] - xs[from];
+                    double py = ys[i] - ys[from];
+                    double distanceSquared;
+                    
+                    if(lengthSquared == 0) {
+                        distanceSquared = px * px + py * py;
+                    } else {
+                        double cross = px * dy - py * dx;
+                        distanceSquared = cross * cross / lengthSquared;
+                    }
+                    
+                    if(distanceSquared > maxDistanceSquared) {
+                        maxDistanceSquared = distanceSquared;
+                        farthest = i;
+                    }
+                }
+                
+                if(maxDistanceSquared > toleranceSquared) {
+                    keep[farthest] = true;
+                    mark(from, farthest);
+                    mark(farthest, to);
+                }
+            }
+        };
+    }
+    
+    public static StrokeFilter chain(StrokeFilter... filters) {
+        if(filters.length == 1) {
+            return filters[0];
+        }
+        
+        StrokeFilter first = filters[0];
+        StrokeFilter rest = chain(Arrays.copyOfRange(filters, 1, filters.length));
+        
+        return new StrokeFilter() {
+            private Sink sink;
+            private final Sink intoRest = (x, y, time) -> rest.point(x, y, time, sink);
+            
+            @Override
+            public void reset(int x, int y) {
+                first.reset(x, y);
+                rest.reset(x, y);
+            }
+
+            @Override
+            public void point(int x, int y, long time, Sink sink) {
+                this.sink = sink;
+                first.point(x, y, time, intoRest);
+            }
+
+            @Override
+            public void end(Sink sink) {
+                this.sink = sink;
+                first.end(intoRest);
+                rest.end(sink);
+            }
+        };
+    }
+}
@@ -0,0 +1,442 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import java.util.Arrays;
+
+/**
+ * Data driven alternative to the hand written shape matchers, after the $1
+ * unistroke recognizer. A stroke is scaled to a square (uniformly, for
+ * strokes that are essentially one dimensional), resampled to a fixed number
+ * of points, moved to the origin and rotated so the angle from its centroid
+ * to its first point is zero; templates are normalized the same way when the
+ * recognizer is built. The stroke is then scored against each template by the
+ * mean distance between corresponding points, minimized over a small range
+ * of rotations.
+ * 
+ * Templates are kept in flat arrays. Rotating a point about the origin keeps
+ * its distance to the origin, so comparing those distances gives a lower
+ * bound for any rotation; templates that cannot beat the best match so far
+ * are skipped on that bound. While searching the rotations of a template, the
+ * distance sum at a rotation is abandoned as soon as it exceeds that at the
+ * rotation it is compared with.
+ *
+ * @author jakob
+ */
+public class TemplateRecognizer {
+    public interface Reduction {
+        /**
+         * Creates the result of a recognized stroke from its points, as
+         * drawn.
+         */
+        Object reduce(int[] xs, int[] ys);
+    }
+    
+    private static final double SIZE = 250.0;
+    private static final double HALF_DIAGONAL = 0.5 * Math.sqrt(2 * SIZE * SIZE);
+    private static final double ANGLE_RANGE = Math.toRadians(45.0);
+    private static final double ANGLE_PRECISION = Math.toRadians(2.0);
+    private static final double PHI = 0.5 * (Math.sqrt(5.0) - 1.0);
+    
+    private final int pointCount;
+    private final double minScore;
+    private final double oneDimensionalRatio;
+    private final int templateCount;
+    // Template t occupies [t * pointCount * 2, (t + 1) * pointCount * 2) as
+    // x, y pairs
+    private final double[] templatePoints;
+    // Distance of each template point to the origin, at t * pointCount
+    private final double[] templateRadii;
+    private final boolean[] templateOneDimensional;
+    private final Reduction[] reductions;
+
+    private TemplateRecognizer(int pointCount, double minScore, double oneDimensionalRatio, double[] templatePoints, double[] templateRadii, boolean[] templateOneDimensional, Reduction[] reductions) {
+        this.pointCount = pointCount;
+        this.minScore = minScore;
+        this.oneDimensionalRatio = oneDimensionalRatio;
+        this.templateCount = reductions.length;
+        this.templatePoints = templatePoints;
+        this.templateRadii = templateRadii;
+        this.templateOneDimensional = templateOneDimensional;
+        this.reductions = reductions;
+    }
+    
+    public static Builder builder() {
+        return new Builder();
+    }
+    
+    public static class Builder {
+        private int pointCount = 64;
+        private double minScore = 0.8;
+        private double oneDimensionalRatio = 0.3;
+        private int[][] xs = new int[0][];
+        private int[][] ys = new int[0][];
+        private Reduction[] reductions = new Reduction[0];
+        
+        public Builder pointCount(int pointCount) {
+            this.pointCount = pointCount;
+            return this;
+        }
+        
+        /**
+         * @param minScore score in [0, 1] a stroke must reach to be
+         * recognized, 1 being a perfect match
+         */
+        public Builder minScore(double minScore) {
+            this.minScore = minScore;
+            return this;
+        }
+        
+        /**
+         * @param oneDimensionalRatio strokes whose bounding box is thinner
+         * than this relative to its length are scaled uniformly
+         */
+        public Builder oneDimensionalRatio(double oneDimensionalRatio) {
+            this.oneDimensionalRatio = oneDimensionalRatio;
+            return this;
+        }
+        
+        public Builder template(int[] xs, int[] ys, Reduction reduction) {
+            if(xs.length != ys.length || xs.length < 2) {
+                throw new IllegalArgumentException("A template needs at least two points.");
+            }
+            
+            int count = reductions.length;
+            this.xs = Arrays.copyOf(this.xs, count + 1);
+            this.ys = Arrays.copyOf(this.ys, count + 1);
+            reductions = Arrays.copyOf(reductions, count + 1);
+            this.xs[count] = xs.clone();
+            this.ys[count] = ys.clone();
+            reductions[count] = reduction;
+            return this;
+        }
+        
+        public TemplateRecognizer build() {
+            int count = reductions.length;
+            double[] templatePoints = new double[count * pointCount * 2];
+            double[] templateRadii = new double[count * pointCount];
+            boolean[] templateOneDimensional = new boolean[count];
+            double[] points = new double[pointCount * 2];
+            
+            for(int t = 0; t < count; t++) {
+                int result = normalize(xs[t], ys[t], xs[t].length, pointCount, oneDimensionalRatio, points);
+                if(result == NOT_NORMALIZABLE) {
+                    throw new IllegalArgumentException("Template " + t + " has no length.");
+                }
+                templateOneDimensional[t] = result == ONE_DIMENSIONAL;
+                System.arraycopy(points, 0, templatePoints, t * pointCount * 2, pointCount * 2);
+                radii(points, pointCount, templateRadii, t * pointCount);
+            }
+            
+            return new TemplateRecognizer(pointCount, minScore, oneDimensionalRatio, templatePoints, templateRadii, templateOneDimensional, reductions.clone());
+        }
+    }
+    
+    public int getTemplateCount() {
+        return templateCount;
+    }
+    
+    public Matcher matcher(int x, int y) {
+        return new Matcher() {
+            @Override
+            public Object match(Input input) throws InterruptedException {
+                PenInput penInput = PenInputs.asPenInput(input);
+                int[] xs = new int[64];
+                int[] ys = new int[64];
+                xs[0] = x;
+                ys[0] = y;
+                int count = 1;
+                
+                while(!penInput.atEnd() && penInput.peekKind() == PenEvents.MOVED) {
+                    if(count == xs.length) {
+                        xs = Arrays.copyOf(xs, count * 2);
+                        ys = Arrays.copyOf(ys, count * 2);
+                    }
+                    xs[count] = penInput.peekX();
+                    ys[count] = penInput.peekY();
+                    count++;
+                    penInput.skip();
+                }
+                
+                if(!penInput.atEnd()) {
+                    return null;
+                }
+                
+                int best = recognize(xs, ys, count);
+                
+                return best != -1 ? reductions[best].reduce(Arrays.copyOf(xs, count), Arrays.copyOf(ys, count)) : null;
+            }
+        };
+    }
+    
+    /**
+     * Finds the template matching a stroke best.
+     * 
+     * @return the index of the template, in the order added, or -1 if none
+     * reaches the minimum score
+     */
+    public int recognize(int[] xs, int[] ys, int count) {
+        return recognize(xs, ys, count, true);
+    }
+    
+    // Without pruning every template and every rotation tried is scored in
+    // full, for tests to check the pruning against
+    int recognize(int[] xs, int[] ys, int count, boolean prune) {
+        double[] points = new double[pointCount * 2];
+        int normalized = normalize(xs, ys, count, pointCount, oneDimensionalRatio, points);
+        if(normalized == NOT_NORMALIZABLE) {
+            return -1;
+        }
+        boolean oneDimensional = normalized == ONE_DIMENSIONAL;
+        
+        double[] radii = new double[pointCount];
+        radii(points, pointCount, radii, 0);
+        double[] rotated = new double[pointCount * 2];
+        
+        // Sum of distances, i.e. pointCount times the mean distance
+        double bestSum = (1.0 - minScore) * HALF_DIAGONAL * pointCount;
+        int best = -1;
+        
+        for(int t = 0; t < templateCount; t++) {
+            if(templateOneDimensional[t] != oneDimensional) {
+                continue;
+            }
+            
+            if(prune && radiusBound(radii, t, bestSum) >= bestSum) {
+                continue;
+            }
+            
+            double sum = distanceAtBestAngle(points, rotated, t, prune);
+            if(sum < bestSum) {
+                bestSum = sum;
+                best = t;
+            }
+        }
+        
+        return best;
+    }
+    
+    private double radiusBound(double[] radii, int template, double limit) {
+        int offset = template * pointCount;
+        double sum = 0;
+        
+        for(int i = 0; i < pointCount && sum < limit; i++) {
+            sum += Math.abs(radii[i] - templateRadii[offset + i]);
+        }
+        
+        return sum;
+    }
+    
+    // Golden section search over the rotation. The distance need not have a
+    // single minimum over the range, so the search cannot stop once it has
+    // gone past the best match of the other templates. Each new probe is only
+    // compared with the probe kept, though, and can be abandoned once it
+    // exceeds that; the probe kept is always complete, so the search takes
+    // the same path as without abandoning.
+    private double distanceAtBestAngle(double[] points, double[] rotated, int template, boolean prune) {
+        double a = -ANGLE_RANGE;
+        double b = ANGLE_RANGE;
+        double x1 = PHI * a + (1.0 - PHI) * b;
+        double f1 = distanceAtAngle(points, rotated, template, x1, Double.POSITIVE_INFINITY);
+        double x2 = (1.0 - PHI) * a + PHI * b;
+        double f2 = distanceAtAngle(points, rotated, template, x2, prune ? f1 : Double.POSITIVE_INFINITY);
+        
+        while(Math.abs(b - a) > ANGLE_PRECISION) {
+            if(f1 < f2) {
+                b = x2;
+                x2 = x1;
+                f2 = f1;
+                x1 = PHI * a + (1.0 - PHI) * b;
+                f1 = distanceAtAngle(points, rotated, template, x1, prune ? f2 : Double.POSITIVE_INFINITY);
+            } else {
+                a = x1;
+                x1 = x2;
+                f1 = f2;
+                x2 = (1.0 - PHI) * a + PHI * b;
+                f2 = distanceAtAngle(points, rotated, template, x2, prune ? f1 : Double.POSITIVE_INFINITY);
+            }
+        }
+        
+        return Math.min(f1, f2);
+    }
+    
+    // Sum of point distances, or something at least limit once it is clear
+    // the sum will reach it
+    private double distanceAtAngle(double[] points, double[] rotated, int template, double angle, double limit) {
+        double cos = Math.cos(angle);
+        double sin = Math.sin(angle);
+        int offset = template * pointCount * 2;
+        double sum = 0;
+        
+        for(int i = 0; i < pointCount * 2 && sum < limit; i += 2) {
+            double x = points[i] * cos - points[i + 1] * sin;
+            double y = points[i] * sin + points[i + 1] * cos;
+            double dx = x - templatePoints[offset + i];
+            double dy = y - templatePoints[offset + i + 1];
+            sum += Math.sqrt(dx * dx + dy * dy);
+        }
+        
+        return sum;
+    }
+    
+    private static final int NOT_NORMALIZABLE = 0;
+    private static final int TWO_DIMENSIONAL = 1;
+    private static final int ONE_DIMENSIONAL = 2;
+    
+    private static int normalize(int[] xs, int[] ys, int count, int pointCount, double oneDimensionalRatio, double[] points) {
+        double[] path = new double[count * 2];
+        for(int i = 0; i < count; i++) {
+            path[i * 2] = xs[i];
+            path[i * 2 + 1] = ys[i];
+        }
+        
+        if(!resample(path, count, pointCount, points)) {
+            return NOT_NORMALIZABLE;
+        }
+        
+        center(points, pointCount);
+        rotate(points, pointCount, -Math.atan2(points[1], points[0]));
+        double[] bounds = bounds(points, pointCount);
+        double width = bounds[2] - bounds[0];
+        double height = bounds[3] - bounds[1];
+        
+        if(Math.min(width, height) < oneDimensionalRatio * Math.max(width, height)) {
+            double scale = SIZE / Math.max(width, height);
+            scale(points, pointCount, scale, scale);
+            return ONE_DIMENSIONAL;
+        }
+        
+        // Other shapes are scaled to a square along the canvas axes before
+        // resampling, so an upright rectangle of any proportions ends up a
+        // square with its points spread evenly over the sides
+        bounds = bounds(path, count);
+        scale(path, count, SIZE / (bounds[2] - bounds[0]), SIZE / (bounds[3] - bounds[1]));
+        resample(path, count, pointCount, points);
+        center(points, pointCount);
+        rotate(points, pointCount, -Math.atan2(points[1], points[0]));
+        
+        return TWO_DIMENSIONAL;
+    }
+    
+    private static void center(double[] points, int pointCount) {
+        double centroidX = 0;
+        double centroidY = 0;
+        for(int i = 0; i < pointCount * 2; i += 2) {
+            centroidX += points[i];
+            centroidY += points[i + 1];
+        }
+        centroidX /= pointCount;
+        centroidY /= pointCount;
+        
+        for(int i = 0; i < pointCount * 2; i += 2) {
+            points[i] -= centroidX;
+            points[i + 1] -= centroidY;
+        }
+    }
+    
+    private static void rotate(double[] points, int pointCount, double angle) {
+        double cos = Math.cos(angle);
+        double sin = Math.sin(angle);
+        
+        for(int i = 0; i < pointCount * 2; i += 2) {
+            double x = points[i];
+            double y = points[i + 1];
+            points[i] = x * cos - y * sin;
+            points[i + 1] = x * sin + y * cos;
+        }
+    }
+    
+    private static void scale(double[] points, int pointCount, double scaleX, double scaleY) {
+        for(int i = 0; i < pointCount * 2; i += 2) {
+            points[i] *= scaleX;
+            points[i + 1] *= scaleY;
+        }
+    }
+    
+    private static double[] bounds(double[] points, int pointCount) {
+        double[] bounds = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        
+        for(int i = 0; i < pointCount * 2; i += 2) {
+            bounds[0] = Math.min(bounds[0], points[i]);
+            bounds[1] = Math.min(bounds[1], points[i + 1]);
+            bounds[2] = Math.max(bounds[2], points[i]);
+            bounds[3] = Math.max(bounds[3], points[i + 1]);
+        }
+        
+        return bounds;
+    }
+    
+    // Points at equal distances along the path, both as x, y pairs
+    private static boolean resample(double[] path, int count, int pointCount, double[] points) {
+        double length = 0;
+        for(int i = 2; i < count * 2; i += 2) {
+            length += Geometry.length(path[i] - path[i - 2], path[i + 1] - path[i - 1]);
+        }
+        if(length == 0) {
+            return false;
+        }
+        
+        double interval = length / (pointCount - 1);
+        double travelled = 0;
+        double previousX = path[0];
+        double previousY = path[1];
+        points[0] = previousX;
+        points[1] = previousY;
+        int resampled = 1;
+        int i = 2;
+        
+        while(i < count * 2 && resampled < pointCount) {
+            double segment = Geometry.length(path[i] - previousX, path[i + 1] - previousY);
+            
+            if(travelled + segment >= interval && segment > 0) {
+                double t = (interval - travelled) / segment;
+                previousX += t * (path[i] - previousX);
+                previousY += t * (path[i + 1] - previousY);
+                points[resampled * 2] = previousX;
+                points[resampled * 2 + 1] = previousY;
+                resampled++;
+                travelled = 0;
+            } else {
+                travelled += segment;
+                previousX = path[i];
+                previousY = path[i + 1];
+                i += 2;
+            }
+        }
+        
+        // Rounding may leave the last point out
+        for(; resampled < pointCount; resampled++) {
+            points[resampled * 2] = path[count * 2 - 2];
+            points[resampled * 2 + 1] = path[count * 2 - 1];
+        }
+        
+        return true;
+    }
+    
+    private static void radii(double[] points, int pointCount, double[] radii, int offset) {
+        for(int i = 0; i < pointCount; i++) {
+            radii[offset + i] = Geometry.length(points[i * 2], points[i * 2 + 1]);
+        }
+    }
+}
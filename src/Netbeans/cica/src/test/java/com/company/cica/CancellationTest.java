@@ -0,0 +1,86 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+/**
+ *
+ * @author jakob
+ */
+public class CancellationTest {
+    private static final long BUDGET = TimeUnit.MILLISECONDS.toNanos(5);
+    
+    @Test
+    public void progressKeepsIdleBudgetAlive() {
+        Cancellation cancellation = new Cancellation();
+        cancellation.setIdleBudget(BUDGET);
+        long until = System.nanoTime() + 20 * BUDGET;
+        
+        while(System.nanoTime() - until < 0) {
+            cancellation.progressed();
+            cancellation.throwIfCancelled();
+        }
+        
+        assertFalse(cancellation.isCancelled());
+    }
+    
+    @Test
+    public void idleBudgetRunsOutWithoutProgress() {
+        Cancellation cancellation = new Cancellation();
+        cancellation.setIdleBudget(BUDGET);
+        cancellation.progressed();
+        long giveUp = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        
+        try {
+            while(System.nanoTime() - giveUp < 0) {
+                cancellation.throwIfCancelled();
+            }
+            fail("Idle budget did not run out.");
+        } catch (MatchCancelledException ex) {
+            assertTrue(cancellation.isCancelled());
+        }
+    }
+    
+    @Test
+    public void deadlineIsNotMovedByProgress() {
+        Cancellation cancellation = new Cancellation();
+        cancellation.setDeadline(System.nanoTime() + BUDGET);
+        long giveUp = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        
+        try {
+            while(System.nanoTime() - giveUp < 0) {
+                cancellation.progressed();
+                cancellation.throwIfCancelled();
+            }
+            fail("Deadline did not pass.");
+        } catch (MatchCancelledException ex) {
+            assertTrue(cancellation.isCancelled());
+        }
+    }
+}
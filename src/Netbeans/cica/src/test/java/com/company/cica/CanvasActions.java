@@ -0,0 +1,56 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+/**
+ * Renders what an action would draw as text, for comparing results.
+ *
+ * @author jakob
+ */
+class CanvasActions {
+    static String describe(Object action) {
+        if(action == null) {
+            return "-";
+        }
+        
+        StringBuilder description = new StringBuilder();
+        ((CanvasAction) action).perform(new Canvas() {
+            @Override
+            public Drawing newDrawing(int x, int y) {
+                description.append('(').append(x).append(',').append(y).append(')');
+                return new Drawing() {
+                    @Override
+                    public void moveTo(int x, int y) {
+                        description.append('(').append(x).append(',').append(y).append(')');
+                    }
+
+                    @Override
+                    public void delete() {
+                    }
+                };
+            }
+        });
+        return description.toString();
+    }
+}
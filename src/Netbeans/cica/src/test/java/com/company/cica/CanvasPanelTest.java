@@ -0,0 +1,135 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import javax.swing.SwingUtilities;
+import org.junit.Test;
+
+/**
+ *
+ * @author jakob
+ */
+public class CanvasPanelTest {
+    private static Drawing draw(Canvas canvas, int... points) {
+        Drawing drawing = canvas.newDrawing(points[0], points[1]);
+        for(int i = 2; i < points.length; i += 2) {
+            drawing.moveTo(points[i], points[i + 1]);
+        }
+        return drawing;
+    }
+    
+    private static ArrayList<Drawing> drawingsIn(Canvas canvas, int x, int y, int width, int height) {
+        ArrayList<Drawing> found = new ArrayList<>();
+        canvas.drawingsIn(x, y, width, height, found::add);
+        return found;
+    }
+    
+    @Test
+    public void findsTheCommittedDrawingsAtALocation() {
+        CanvasPanel canvas = new CanvasPanel();
+        Drawing line = draw(canvas, 100, 100, 200, 100);
+        Drawing rect = draw(canvas, 300, 300, 400, 300, 400, 400, 300, 400, 300, 300);
+        Drawing inProgress = draw(canvas, 100, 300, 150, 350);
+        line.commit();
+        rect.commit();
+        
+        assertSame(line, canvas.drawingAt(150, 105, 10));
+        assertSame(rect, canvas.drawingAt(350, 350, 0));
+        assertSame(rect, canvas.drawingAt(300, 290, 10));
+        assertNull(canvas.drawingAt(300, 280, 10));
+        // Drawings count once committed
+        assertNull(canvas.drawingAt(120, 320, 10));
+        inProgress.commit();
+        assertSame(inProgress, canvas.drawingAt(120, 320, 10));
+        
+        ArrayList<Drawing> found = drawingsIn(canvas, 0, 0, 500, 500);
+        assertEquals(3, found.size());
+        assertTrue(found.contains(line) && found.contains(rect) && found.contains(inProgress));
+        assertEquals("[" + line + "]", drawingsIn(canvas, 50, 50, 100, 100).toString());
+        assertEquals(0, drawingsIn(canvas, 210, 110, 50, 50).size());
+    }
+    
+    @Test
+    public void followsCommittedDrawingsAsTheyChange() {
+        CanvasPanel canvas = new CanvasPanel();
+        Drawing line = draw(canvas, 100, 100, 200, 100);
+        Drawing other = draw(canvas, 100, 120, 200, 120);
+        line.commit();
+        other.commit();
+        
+        line.moveTo(600, 600);
+        assertSame(line, canvas.drawingAt(600, 600, 0));
+        assertEquals("[" + line + "]", drawingsIn(canvas, 500, 500, 200, 200).toString());
+        
+        line.delete();
+        assertNull(canvas.drawingAt(600, 600, 50));
+        assertSame(other, canvas.drawingAt(150, 100, 50));
+        assertEquals("[" + other + "]", drawingsIn(canvas, 0, 0, 1000, 1000).toString());
+        
+        // The action may delete what it is given
+        canvas.drawingsIn(0, 0, 1000, 1000, Drawing::delete);
+        assertNull(canvas.drawingAt(150, 100, 50));
+    }
+    
+    @Test
+    public void repaintsTheChangesSinceTheLastRepaintAtOnce() throws Exception {
+        // Added to on the event dispatch thread
+        ArrayList<Rectangle> repaints = new ArrayList<>();
+        CanvasPanel canvas = new CanvasPanel() {
+            @Override
+            public void repaint(int x, int y, int width, int height) {
+                repaints.add(new Rectangle(x, y, width, height));
+            }
+        };
+        // Holds up the event dispatch thread while the first changes are made
+        CountDownLatch painting = new CountDownLatch(1);
+        SwingUtilities.invokeLater(() -> {
+            try {
+                painting.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        
+        Drawing line = draw(canvas, 100, 100, 200, 150);
+        line.moveTo(250, 50);
+        painting.countDown();
+        SwingUtilities.invokeAndWait(() -> { });
+        draw(canvas, 400, 400, 410, 420);
+        SwingUtilities.invokeAndWait(() -> { });
+        
+        // The area of the points, grown by the padding, and after that only
+        // what changed since
+        assertEquals(2, repaints.size());
+        assertEquals(new Rectangle(98, 48, 155, 105), repaints.get(0));
+        assertEquals(new Rectangle(398, 398, 15, 25), repaints.get(1));
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author jakob
+ */
+public class CornerDetectorTest {
+    private static SegmentGraph graphOf(CornerDetector detector, PenStrokes stroke) {
+        detector.reset(stroke.xs[0], stroke.ys[0]);
+        for(int i = 1; i < stroke.size(); i++) {
+            detector.point(stroke.xs[i], stroke.ys[i]);
+        }
+        return detector.end();
+    }
+    
+    private static void assertCorners(SegmentGraph graph, int... corners) {
+        int[] xs = graph.getCornerXs();
+        int[] ys = graph.getCornerYs();
+        assertEquals(corners.length / 2, xs.length);
+        for(int i = 0; i < xs.length; i++) {
+            assertEquals("x of corner " + i, corners[i * 2], xs[i], 6);
+            assertEquals("y of corner " + i, corners[i * 2 + 1], ys[i], 6);
+        }
+    }
+    
+    @Test
+    public void findsTheCornersOfARectangle() {
+        SegmentGraph graph = graphOf(new CornerDetector(), PenStrokes.polyline(3, 0, 1, 
+            100, 100, 300, 100, 300, 250, 100, 250, 100, 100));
+        
+        assertTrue(graph.isClosed());
+        assertEquals(4, graph.getSideCount());
+        assertCorners(graph, 100, 100, 300, 100, 300, 250, 100, 250);
+        for(int i = 0; i < 4; i++) {
+            assertEquals(90, graph.getTurn(i), 10);
+        }
+    }
+    
+    @Test
+    public void findsTheCornersOfATriangleDrawnTheOtherWay() {
+        SegmentGraph graph = graphOf(new CornerDetector(), PenStrokes.polyline(3, 0, 1, 
+            200, 100, 100, 300, 300, 300, 200, 100));
+        
+        assertTrue(graph.isClosed());
+        assertEquals(3, graph.getSideCount());
+        assertCorners(graph, 200, 100, 100, 300, 300, 300);
+        for(int i = 0; i < 3; i++) {
+            assertTrue(graph.getTurn(i) < 0);
+        }
+    }
+    
+    @Test
+    public void findsNoCornersOnALine() {
+        SegmentGraph graph = graphOf(new CornerDetector(), PenStrokes.polyline(3, 1, 1, 100, 100, 300, 180));
+        
+        assertFalse(graph.isClosed());
+        assertEquals(1, graph.getEdgeCount());
+        assertCorners(graph, 100, 100, 300, 180);
+        assertTrue(graph.getStraightness(0) > 0.95);
+    }
+    
+    @Test
+    public void findsTheCornerOfAnL() {
+        SegmentGraph graph = graphOf(new CornerDetector(), PenStrokes.polyline(3, 1, 1, 100, 100, 100, 300, 250, 300));
+        
+        assertFalse(graph.isClosed());
+        assertEquals(2, graph.getEdgeCount());
+        assertCorners(graph, 100, 100, 100, 300, 250, 300);
+    }
+    
+    @Test(expected = LookbackExceededException.class)
+    public void keepsNoMorePointsThanItIsAllowed() {
+        graphOf(new CornerDetector(1000), PenStrokes.scribble(5000, 1));
+    }
+    
+    @Test
+    public void isReusedAfterALongStroke() {
+        CornerDetector detector = new CornerDetector(1000);
+        try {
+            graphOf(detector, PenStrokes.scribble(5000, 1));
+        } catch (LookbackExceededException ex) {
+        }
+        
+        graphOf(detector, PenStrokes.scribble(900, 2));
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author jakob
+ */
+public class GeometryTest {
+    // What the class doc promises for Geometry.direction against Math.atan2
+    private static final double MAX_ERROR = 1e-8;
+    
+    @Test
+    public void directionFollowsAtan2OverGrid() {
+        int radius = 300;
+        double maxError = 0;
+        for(int dx = -radius; dx <= radius; dx++) {
+            for(int dy = -radius; dy <= radius; dy++) {
+                double error = Math.abs(Geometry.direction(dx, dy) - Math.toDegrees(Math.atan2(dy, dx)));
+                maxError = Math.max(maxError, error);
+            }
+        }
+        
+        assertTrue("Max error " + maxError, maxError <= MAX_ERROR);
+    }
+    
+    @Test
+    public void directionFollowsAtan2ForLongVectors() {
+        for(int i = 0; i < 3600; i++) {
+            double angle = Math.toRadians(i / 10.0);
+            double dx = 10000 * Math.cos(angle);
+            double dy = 10000 * Math.sin(angle);
+            assertEquals(Math.toDegrees(Math.atan2(dy, dx)), Geometry.direction(dx, dy), MAX_ERROR);
+        }
+    }
+    
+    @Test
+    public void directionIsExactOnAxesAndDiagonals() {
+        assertEquals(0, Geometry.direction(5, 5, 10, 5), 0);
+        assertEquals(45, Geometry.direction(5, 5, 10, 10), 0);
+        assertEquals(90, Geometry.direction(5, 5, 5, 10), 0);
+        assertEquals(135, Geometry.direction(5, 5, 0, 10), 0);
+        assertEquals(180, Geometry.direction(5, 5, 0, 5), 0);
+        assertEquals(-135, Geometry.direction(5, 5, 0, 0), 0);
+        assertEquals(-90, Geometry.direction(5, 5, 5, 0), 0);
+        assertEquals(-45, Geometry.direction(5, 5, 10, 0), 0);
+    }
+    
+    @Test
+    public void turnIsClockwise() {
+        assertEquals(90, Geometry.turn(90, 180), 0);
+        assertEquals(90, Geometry.turn(180, -90), 0);
+        assertEquals(90, Geometry.turn(-90, 0), 0);
+        assertEquals(90, Geometry.turn(0, 90), 0);
+        assertEquals(90, Geometry.turn(190, -80), 0);
+        assertEquals(270, Geometry.turn(180, 90), 0);
+    }
+    
+    @Test
+    public void angleDeltaCounterClockwiseMirrorsClockwise() {
+        assertEquals(90, Matchers.angleDeltaCC(180, 90), 0);
+        assertEquals(90, Matchers.angleDeltaCC(90, 0), 0);
+        assertEquals(90, Matchers.angleDeltaCC(0, -90), 0);
+        assertEquals(90, Matchers.angleDeltaCC(-90, 180), 0);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ *
+ * @author jakob
+ */
+public class GestureRegistryTest {
+    private static final GestureRegistry SHAPES = GestureRegistry.builder()
+        .shape("rect", Matchers.rectShape()).corners(2, 6).minLength(40)
+        .shape("triangle", Matchers.triangleShape()).corners(1, 5).minLength(40)
+        .build();
+    
+    private static Object match(MatcherFactory factory, PenStrokes stroke) throws InterruptedException {
+        PenInput input = PenInputs.toRecoverable(PenInputs.stroke(stroke.moves(), (x, y) -> { }));
+        return factory.fromLocation(stroke.xs[0], stroke.ys[0]).match(input);
+    }
+    
+    private static SegmentGraph graphOf(PenStrokes stroke) {
+        CornerDetector detector = new CornerDetector();
+        detector.reset(stroke.xs[0], stroke.ys[0]);
+        for(int i = 1; i < stroke.size(); i++) {
+            detector.point(stroke.xs[i], stroke.ys[i]);
+        }
+        return detector.end();
+    }
+    
+    // A rectangle started part way along its first side
+    private static PenStrokes rect(Random random, double noise, double step, long seed) {
+        int x = 100 + random.nextInt(100);
+        int y = 100 + random.nextInt(100);
+        int w = 40 + random.nextInt(300);
+        int h = 40 + random.nextInt(300);
+        int startX = x + random.nextInt(w);
+        return PenStrokes.polyline(step, noise, seed, startX, y, x + w, y, x + w, y + h, x, y + h, x, y, startX, y);
+    }
+    
+    @Test
+    public void noisyRectanglesAreNotPrunedBeforeTheirGraphIsKnown() throws InterruptedException {
+        Random random = new Random(3);
+        GestureRegistry rects = GestureRegistry.builder()
+            .shape("rect", Matchers.rectShape()).corners(2, 6).minLength(40)
+            .build();
+        
+        for(int i = 0; i < 2000; i++) {
+            PenStrokes stroke = rect(random, i % 5, 1 + i % 3, i);
+            SegmentGraph graph = graphOf(stroke);
+            int corners = graph.getEdgeCount() - 1;
+            Object expected = corners >= 2 && corners <= 6 ? Matchers.rectShape().recognize(graph) : null;
+            
+            assertEquals("Stroke " + i, CanvasActions.describe(expected), CanvasActions.describe(match(rects, stroke)));
+        }
+    }
+    
+    @Test
+    public void picksShapesByTheirGraph() throws InterruptedException {
+        PenStrokes rect = PenStrokes.polyline(2, 0, 1, 20, 20, 220, 20, 220, 170, 20, 170, 20, 20);
+        PenStrokes triangle = PenStrokes.polyline(2, 0, 1, 100, 20, 200, 200, 20, 200, 100, 20);
+        PenStrokes line = PenStrokes.polyline(2, 0, 1, 20, 20, 320, 120);
+        
+        assertEquals("(20,20)(220,20)(220,170)(20,170)(20,20)", CanvasActions.describe(match(SHAPES, rect)));
+        assertNotNull(match(SHAPES, triangle));
+        assertNull(match(SHAPES, line));
+    }
+    
+    @Test
+    public void cutsScribblesShort() throws InterruptedException {
+        assertNull(match(SHAPES, PenStrokes.scribble(5000, 2)));
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author jakob
+ */
+public class HistogramTest {
+    @Test
+    public void bucketsBoundTheirValues() {
+        for(long value = 0; value < 1_000_000; value += 7) {
+            int bucket = Histogram.bucketOf(value);
+            assertTrue(Histogram.lowerBoundOf(bucket) <= value);
+            assertTrue(value < Histogram.lowerBoundOf(bucket + 1));
+        }
+    }
+    
+    @Test
+    public void stripesArePowersOfTwo() {
+        for(int processors = 1; processors <= 256; processors++) {
+            int stripes = Histogram.stripesFor(processors);
+            assertEquals(0, stripes & (stripes - 1));
+            assertTrue(stripes >= Math.min(processors, 16));
+            assertTrue(stripes <= 32);
+        }
+    }
+    
+    @Test
+    public void snapshotSumsRecordsFromShortLivedThreads() throws InterruptedException {
+        Histogram histogram = new Histogram();
+        int threads = 500;
+        int recordsPerThread = 100;
+        
+        for(int t = 0; t < threads; t += 50) {
+            Thread[] batch = new Thread[50];
+            for(int i = 0; i < batch.length; i++) {
+                batch[i] = new Thread(() -> {
+                    for(int r = 1; r <= recordsPerThread; r++) {
+                        histogram.record(r);
+                    }
+                });
+                batch[i].start();
+            }
+            for(Thread thread: batch) {
+                thread.join();
+            }
+        }
+        
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(threads * recordsPerThread, snapshot.getCount());
+        assertEquals(recordsPerThread, snapshot.getMax());
+        assertEquals((recordsPerThread + 1) / 2.0, snapshot.getMean(), 1e-9);
+        long median = snapshot.getValueAtPercentile(50);
+        assertTrue("Median " + median, median >= 48 && median <= 50);
+    }
+}
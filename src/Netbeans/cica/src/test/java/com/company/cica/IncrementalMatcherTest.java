@@ -0,0 +1,148 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ *
+ * @author jakob
+ */
+public class IncrementalMatcherTest {
+    private static final IncrementalMatcher.Listener IGNORE = (progress, preview) -> { };
+    
+    // Reads whatever it is given and never decides
+    private static class ReadingAll implements MatcherFactory {
+        long eventsRead;
+        
+        @Override
+        public Matcher fromLocation(int x, int y) {
+            return input -> {
+                PenInput penInput = PenInputs.asPenInput(input);
+                while(!penInput.atEnd()) {
+                    penInput.skip();
+                    eventsRead++;
+                }
+                return null;
+            };
+        }
+    }
+    
+    private static PenInput stroke(PenStrokes stroke) {
+        return PenInputs.stroke(stroke.moves(), (x, y) -> { });
+    }
+    
+    @Test
+    public void readsTheStrokeALinearNumberOfTimes() throws InterruptedException {
+        PenStrokes stroke = PenStrokes.scribble(20000, 1);
+        ReadingAll candidate = new ReadingAll();
+        List<Integer> evaluations = new ArrayList<>();
+        
+        new IncrementalMatcher(new MatcherFactory[] {candidate}, stroke.xs[0], stroke.ys[0], 4, 
+            (progress, preview) -> evaluations.add(evaluations.size())).match(stroke(stroke));
+        
+        assertTrue("Read " + candidate.eventsRead, candidate.eventsRead <= 4L * stroke.size());
+        assertTrue("Evaluated " + evaluations.size() + " times", evaluations.size() < 40);
+    }
+    
+    @Test
+    public void endsWithWhatTheCandidatesMakeOfTheWholeStroke() throws InterruptedException {
+        PenStrokes line = PenStrokes.polyline(1, 0, 1, 20, 20, 320, 120);
+        MatcherFactory[] candidates = {
+            (x, y) -> Matchers.compiledRectCanvasActionMatcher(x, y),
+            (x, y) -> Matchers.compiledLineCanvasActionMatcher(x, y)
+        };
+        List<String> previews = new ArrayList<>();
+        
+        Object result = new IncrementalMatcher(candidates, 20, 20, 4, 
+            (progress, preview) -> previews.add(CanvasActions.describe(preview))).match(stroke(line));
+        
+        assertEquals("(20,20)(320,120)", CanvasActions.describe(result));
+        // The line so far, while it is being drawn
+        assertTrue(previews.stream().anyMatch(preview -> preview.startsWith("(20,20)(")));
+    }
+    
+    @Test(expected = LookbackExceededException.class)
+    public void keepsNoMoreThanTheLookback() throws InterruptedException {
+        PenStrokes stroke = PenStrokes.scribble(5000, 1);
+        MatcherFactory[] candidates = {new ReadingAll()};
+        
+        new IncrementalMatcher(null, candidates, stroke.xs[0], stroke.ys[0], 4, 1000, IGNORE).match(stroke(stroke));
+    }
+    
+    @Test
+    public void abandonsStrokesLongerThanTheLookback() throws InterruptedException {
+        PenStrokes stroke = PenStrokes.scribble(RecoverablePenInput.DEFAULT_MAX_LOOKBACK + 1000, 1);
+        MatcherFactory[] vocabulary = {new ReadingAll()};
+        RecordingListener listener = new RecordingListener();
+        
+        new RecognitionEngine(vocabulary, 4, null, listener).recognize(0, stroke.xs[0], stroke.ys[0], stroke.moves());
+        
+        assertEquals(Arrays.asList("abandoned"), listener.outcomes(0));
+    }
+    
+    @Test
+    public void givesUpOnceNoCandidateIsLeft() throws InterruptedException {
+        // Turns back on itself, which a line cannot
+        PenStrokes stroke = PenStrokes.polyline(1, 0, 1, 20, 20, 320, 20, 20, 20, 320, 20, 20, 20);
+        MatcherFactory[] candidates = {(x, y) -> Matchers.compiledLineCanvasActionMatcher(x, y)};
+        PenInput input = stroke(stroke);
+        
+        assertNull(new IncrementalMatcher(candidates, 20, 20, 4, IGNORE).match(input));
+        assertTrue(!input.atEnd());
+    }
+    
+    @Test
+    public void givesUpOnARegistryWhoseGesturesFailOnTheirOwn() throws InterruptedException {
+        // Turns once, which the registry lets through to a line that cannot
+        PenStrokes stroke = PenStrokes.polyline(3, 0, 1, 20, 20, 320, 20, 320, 920);
+        MatcherFactory[] candidates = {GestureRegistry.builder()
+            .gesture("line", (x, y) -> Matchers.compiledLineCanvasActionMatcher(x, y)).corners(0, 1)
+            .build()};
+        int[] read = {0};
+        PenInput input = PenInputs.stroke(stroke.moves(), (x, y) -> read[0]++);
+        
+        assertNull(new IncrementalMatcher(candidates, 20, 20, 4, IGNORE).match(input));
+        assertTrue("Read " + read[0], read[0] < stroke.size() / 2);
+    }
+    
+    @Test
+    public void keepsRegistryShapesUndecidedUntilTheStrokeEnds() throws InterruptedException {
+        // Too short for the rectangle at first
+        PenStrokes stroke = PenStrokes.polyline(3, 0, 1, 20, 20, 320, 20, 320, 220, 20, 220, 20, 20);
+        MatcherFactory[] candidates = {GestureRegistry.builder()
+            .shape("rect", Matchers.rectShape()).corners(2, 6).minLength(40)
+            .build()};
+        
+        Object result = new IncrementalMatcher(candidates, 20, 20, 4, IGNORE).match(stroke(stroke));
+        
+        assertEquals("(20,20)(320,20)(320,220)(20,220)(20,20)", CanvasActions.describe(result));
+    }
+}
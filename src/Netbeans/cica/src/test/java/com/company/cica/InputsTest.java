@@ -0,0 +1,71 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ *
+ * @author jakob
+ */
+public class InputsTest {
+    private static Input counting(int count) {
+        int[] next = {0};
+        return Inputs.fromProvider(() -> next[0] < count ? next[0]++ : -1, o -> (Integer)o == -1);
+    }
+    
+    @Test
+    public void keepsEverythingWithoutALimit() {
+        Input input = Inputs.toRecoverable(counting(RecoverablePenInput.DEFAULT_MAX_LOOKBACK * 2));
+        input.take();
+        
+        InputState state = input.getState();
+        input.skip(RecoverablePenInput.DEFAULT_MAX_LOOKBACK * 2 - 1);
+        state.recover();
+        
+        assertEquals(1, input.take());
+    }
+    
+    @Test
+    public void recoversWithinTheLimit() {
+        Input input = Inputs.toRecoverable(counting(1000), 100);
+        input.skip(500);
+        
+        InputState state = input.getState();
+        input.skip(99);
+        state.recover();
+        
+        assertEquals(500, input.take());
+    }
+    
+    @Test(expected = LookbackExceededException.class)
+    public void failsToRecoverBeyondTheLimit() {
+        Input input = Inputs.toRecoverable(counting(1000), 100);
+        
+        InputState state = input.getState();
+        input.skip(500);
+        state.recover();
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ *
+ * @author jakob
+ */
+public class MemoTableTest {
+    private static String match(Matcher matcher, PenStrokes stroke) throws InterruptedException {
+        return CanvasActions.describe(matcher.match(PenInputs.toRecoverable(PenInputs.stroke(stroke.moves(), (x, y) -> { }))));
+    }
+    
+    @Test
+    public void answersOnlyForTheEntryInASlot() {
+        MemoTable memoTable = new MemoTable(4);
+        long id = MemoTable.id(1, 10, 20);
+        memoTable.put(id, 0, 5, "first");
+        
+        int position = 1;
+        while(memoTable.find(id, 0) != -1) {
+            memoTable.put(id, position, position + 5, "other");
+            position++;
+        }
+        int slot = memoTable.find(id, position - 1);
+        
+        assertEquals("other", memoTable.result(slot));
+        assertEquals(position + 4, memoTable.end(slot));
+        memoTable.put(MemoTable.id(2, 10, 20), position - 1, 0, "another rule");
+        assertEquals(-1, memoTable.find(id, 0));
+    }
+    
+    @Test
+    public void memoizedAltMatchesLikeThePlainOne() throws InterruptedException {
+        Random random = new Random(1);
+        int[] hits = new int[3];
+        
+        for(int i = 0; i < 150; i++) {
+            double noise = i % 3;
+            int x = 100 + random.nextInt(100);
+            int y = 100 + random.nextInt(100);
+            int w = 60 + random.nextInt(200);
+            int h = 60 + random.nextInt(200);
+            PenStrokes stroke;
+            switch(i % 5) {
+                case 0:
+                    stroke = PenStrokes.polyline(3, noise, i, x, y, x + w, y, x + w, y + h, x, y + h, x, y);
+                    break;
+                case 1:
+                    stroke = PenStrokes.polyline(3, noise, i, x, y, x + w, y + h);
+                    break;
+                case 2:
+                    stroke = PenStrokes.polyline(3, noise, i, x, y, x, y + h, x + w, y + h);
+                    break;
+                case 3:
+                    stroke = PenStrokes.polyline(3, noise, i, x, y, x + w, y, x + w, y + h, x, y + h, x, y, x + w, y);
+                    break;
+                default:
+                    stroke = PenStrokes.scribble(20 + random.nextInt(100), i);
+                    break;
+            }
+            int x1 = stroke.xs[0];
+            int y1 = stroke.ys[0];
+            String expected = match(Matchers.alt(Matchers.rectCanvasActionMatcher(x1, y1), Matchers.lineCanvasActionMatcher(x1, y1)), stroke);
+            
+            // Two slots make entries evict each other all the time
+            int[] capacities = {2, 16, 256};
+            for(int c = 0; c < capacities.length; c++) {
+                MemoTable memoTable = new MemoTable(capacities[c]);
+                assertEquals("stroke " + i + ", " + capacities[c] + " slots", expected, match(Matchers.packratCanvasActionMatcher(memoTable, x1, y1), stroke));
+                hits[c] += memoTable.getHits();
+            }
+        }
+        
+        assertTrue(hits[2] > 0);
+        assertTrue(hits[0] < hits[2]);
+    }
+}
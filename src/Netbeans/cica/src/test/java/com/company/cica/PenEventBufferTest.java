@@ -0,0 +1,164 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+/**
+ *
+ * @author jakob
+ */
+public class PenEventBufferTest {
+    private static final int CAPACITY = 16;
+    
+    private static List<String> drainAll(PenEventBuffer buffer) {
+        List<String> events = new ArrayList<>();
+        buffer.drain((pointer, kind, x, y, time) -> events.add(describe(pointer, kind, x, y)), Integer.MAX_VALUE);
+        return events;
+    }
+    
+    private static String describe(int pointer, int kind, int x, int y) {
+        switch(kind) {
+            case PenEvents.DOWN:
+                return "down " + pointer + " " + x + "," + y;
+            case PenEvents.MOVED:
+                return "move " + pointer + " " + x + "," + y;
+            default:
+                return "up " + pointer + " " + x + "," + y;
+        }
+    }
+    
+    @Test
+    public void dropDiscardsAndCountsWhatDoesNotFit() {
+        PenEventBuffer buffer = new PenEventBuffer(CAPACITY, PenEventBuffer.OverflowPolicy.DROP);
+        
+        for(int i = 0; i < CAPACITY; i++) {
+            assertTrue(buffer.offer(PenEvents.MOVED, i, 0, i));
+        }
+        assertFalse(buffer.offer(PenEvents.MOVED, CAPACITY, 0, CAPACITY));
+        assertFalse(buffer.offer(PenEvents.UP, CAPACITY, 0, CAPACITY));
+        
+        assertEquals(2, buffer.getDropped());
+        List<String> events = drainAll(buffer);
+        assertEquals(CAPACITY, events.size());
+        assertEquals("move 0 " + (CAPACITY - 1) + ",0", events.get(CAPACITY - 1));
+    }
+    
+    @Test(timeout = 10000)
+    public void blockWaitsForTheReader() throws InterruptedException {
+        PenEventBuffer buffer = new PenEventBuffer(CAPACITY, PenEventBuffer.OverflowPolicy.BLOCK);
+        for(int i = 0; i < CAPACITY; i++) {
+            assertTrue(buffer.offer(PenEvents.MOVED, i, 0, i));
+        }
+        
+        CountDownLatch offered = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            buffer.offer(PenEvents.UP, CAPACITY, 0, CAPACITY);
+            offered.countDown();
+        });
+        producer.start();
+        
+        assertFalse(offered.await(100, TimeUnit.MILLISECONDS));
+        assertEquals(CAPACITY, drainAll(buffer).size());
+        assertTrue(offered.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("up 0 " + CAPACITY + ",0"), drainAll(buffer));
+        assertEquals(0, buffer.getDropped());
+    }
+    
+    @Test
+    public void coalesceKeepsTheLatestMoveOnceMovesFillTheRing() {
+        PenEventBuffer buffer = new PenEventBuffer(CAPACITY, PenEventBuffer.OverflowPolicy.COALESCE);
+        buffer.offer(PenEvents.DOWN, 0, 0, 0);
+        for(int i = 1; i <= 100; i++) {
+            assertTrue(buffer.offer(PenEvents.MOVED, i, 0, i));
+        }
+        
+        List<String> events = drainAll(buffer);
+        assertTrue(events.size() < CAPACITY);
+        assertEquals("down 0 0,0", events.get(0));
+        
+        // The move held back goes in with the next one
+        buffer.offer(PenEvents.MOVED, 101, 0, 101);
+        assertEquals(Arrays.asList("move 0 100,0", "move 0 101,0"), drainAll(buffer));
+        assertEquals(100 - events.size(), buffer.getCoalesced());
+        assertEquals(0, buffer.getDropped());
+    }
+    
+    @Test(timeout = 10000)
+    public void coalesceFindsRoomForPenUpsWithoutWaiting() {
+        PenEventBuffer buffer = new PenEventBuffer(CAPACITY, PenEventBuffer.OverflowPolicy.COALESCE);
+        buffer.offer(PenEvents.DOWN, 0, 0, 0);
+        for(int i = 1; i <= 100; i++) {
+            buffer.offer(PenEvents.MOVED, i, 0, i);
+        }
+        
+        assertTrue(buffer.offer(PenEvents.UP, 100, 0, 101));
+        
+        List<String> events = drainAll(buffer);
+        assertEquals("move 0 100,0", events.get(events.size() - 2));
+        assertEquals("up 0 100,0", events.get(events.size() - 1));
+        assertEquals(0, buffer.getDropped());
+    }
+    
+    @Test(timeout = 10000)
+    public void coalesceNeverWaitsForAStalledReader() {
+        PenEventBuffer buffer = new PenEventBuffer(CAPACITY, PenEventBuffer.OverflowPolicy.COALESCE);
+        
+        for(int stroke = 0; stroke < 1000; stroke++) {
+            int pointer = stroke % 3;
+            buffer.offer(pointer, PenEvents.DOWN, 0, 0, 0);
+            for(int i = 1; i <= 20; i++) {
+                buffer.offer(pointer, PenEvents.MOVED, i, 0, i);
+            }
+            buffer.offer(pointer, PenEvents.UP, 20, 0, 21);
+        }
+        
+        assertTrue(buffer.getDropped() > 0);
+        assertEquals(CAPACITY, drainAll(buffer).size());
+    }
+    
+    @Test
+    public void closeFlushesTheMoveHeldBack() {
+        PenEventBuffer buffer = new PenEventBuffer(CAPACITY, PenEventBuffer.OverflowPolicy.COALESCE);
+        for(int i = 1; i <= 100; i++) {
+            buffer.offer(PenEvents.MOVED, i, 0, i);
+        }
+        List<String> events = drainAll(buffer);
+        
+        buffer.close();
+        
+        assertFalse(buffer.offer(PenEvents.MOVED, 101, 0, 101));
+        assertEquals(Arrays.asList("move 0 100,0"), drainAll(buffer));
+        assertEquals(100, events.size() + 1 + buffer.getCoalesced());
+        assertFalse(buffer.awaitEvents());
+    }
+}
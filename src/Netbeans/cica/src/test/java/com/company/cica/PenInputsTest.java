@@ -0,0 +1,162 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.util.Arrays;
+import org.junit.Test;
+
+/**
+ *
+ * @author jakob
+ */
+public class PenInputsTest {
+    // Passes everything on, noting the largest batch handed out
+    private static class Batches implements PenInput {
+        private final PenInput source;
+        private int largest;
+
+        Batches(PenInput source) {
+            this.source = source;
+        }
+
+        @Override
+        public int peekKind() {
+            return source.peekKind();
+        }
+
+        @Override
+        public int peekPointer() {
+            return source.peekPointer();
+        }
+
+        @Override
+        public int peekX() {
+            return source.peekX();
+        }
+
+        @Override
+        public int peekY() {
+            return source.peekY();
+        }
+
+        @Override
+        public long peekTime() {
+            return source.peekTime();
+        }
+
+        @Override
+        public void skip() {
+            source.skip();
+        }
+
+        @Override
+        public void skip(int count) {
+            source.skip(count);
+        }
+
+        @Override
+        public boolean atEnd() {
+            return source.atEnd();
+        }
+
+        @Override
+        public int fill(PenBatch batch) {
+            int count = source.fill(batch);
+            largest = Math.max(largest, count);
+            return count;
+        }
+
+        @Override
+        public InputState getState() {
+            return source.getState();
+        }
+
+        @Override
+        public Cancellation getCancellation() {
+            return source.getCancellation();
+        }
+    }
+    
+    // The moves of the stroke and its pen up, as a pen event buffer holds
+    // them once it has caught up with the pen
+    private static PenInput buffered(PenStrokes stroke) {
+        PenEventBuffer buffer = new PenEventBuffer(stroke.size() + 1);
+        for(int i = 1; i < stroke.size(); i++) {
+            buffer.offer(PenEvents.MOVED, stroke.xs[i], stroke.ys[i], i);
+        }
+        buffer.offer(PenEvents.UP, stroke.xs[stroke.size() - 1], stroke.ys[stroke.size() - 1], stroke.size());
+        buffer.close();
+        return buffer.input();
+    }
+    
+    private static StrokeFilter filter() {
+        return StrokeFilters.chain(StrokeFilters.smooth(0.5), StrokeFilters.resample(4.0));
+    }
+    
+    private static int[] points(PenInput input) {
+        int[] points = new int[16];
+        int count = 0;
+        while(!input.atEnd()) {
+            if(count + 2 > points.length) {
+                points = Arrays.copyOf(points, points.length * 2);
+            }
+            points[count++] = input.peekX();
+            points[count++] = input.peekY();
+            input.skip();
+        }
+        return Arrays.copyOf(points, count);
+    }
+    
+    @Test
+    public void filteredStrokesAreReadInBatches() {
+        PenStrokes stroke = PenStrokes.scribble(2000, 1);
+        Batches filtered = new Batches(PenInputs.filtered(
+            PenInputs.stroke(buffered(stroke), (x, y) -> { }), filter(), stroke.xs[0], stroke.ys[0]));
+        
+        int[] batched = points(PenInputs.toRecoverable(filtered));
+        int[] single = points(PenInputs.filtered(
+            PenInputs.stroke(stroke.moves(), (x, y) -> { }), filter(), stroke.xs[0], stroke.ys[0]));
+        
+        assertTrue(filtered.largest > 1);
+        assertArrayEquals(single, batched);
+    }
+    
+    @Test
+    public void theEngineReadsStrokesInBatches() throws InterruptedException {
+        PenStrokes stroke = PenStrokes.polyline(3, 1, 1, 100, 100, 300, 100, 300, 250, 100, 250, 100, 100);
+        MatcherFactory[] vocabulary = {(x, y) -> Shapes.matcher(x, y, Matchers.rectShape())};
+        RecordingListener listener = new RecordingListener();
+        Batches events = new Batches(buffered(stroke));
+        
+        new RecognitionEngine(null, vocabulary, 0, 1_000_000_000L, PenInputsTest::filter, listener)
+            .recognize(0, stroke.xs[0], stroke.ys[0], events);
+        
+        assertTrue(events.largest > 1);
+        assertEquals(1, listener.outcomes(0).size());
+        assertTrue(listener.outcomes(0).get(0).startsWith("("));
+    }
+}
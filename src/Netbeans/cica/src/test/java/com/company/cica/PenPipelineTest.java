@@ -0,0 +1,131 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.junit.Test;
+
+/**
+ *
+ * @author jakob
+ */
+public class PenPipelineTest {
+    private static final MatcherFactory[] VOCABULARY = {GestureRegistry.builder()
+        .shape("rect", Matchers.rectShape()).corners(2, 6).minLength(40)
+        .shape("triangle", Matchers.triangleShape()).corners(1, 5).minLength(40)
+        .gesture("line", (x, y) -> Matchers.compiledLineCanvasActionMatcher(x, y)).corners(0, 1)
+        .build()};
+    private static final Supplier<StrokeFilter> FILTER = () ->
+        StrokeFilters.chain(StrokeFilters.smooth(0.5), StrokeFilters.simplify(1.0, 32), StrokeFilters.resample(4.0));
+    private static final int STROKES = 2000;
+    private static final int POINTERS = 5;
+    
+    private static List<PenStrokes> strokes() {
+        Random random = new Random(4);
+        List<PenStrokes> strokes = new ArrayList<>();
+        
+        for(int i = 0; i < STROKES; i++) {
+            int x = 100 + random.nextInt(100);
+            int y = 100 + random.nextInt(100);
+            int w = 40 + random.nextInt(200);
+            int h = 40 + random.nextInt(200);
+            switch(i % 4) {
+                case 0:
+                    strokes.add(PenStrokes.polyline(3, 1, i, x, y, x + w, y, x + w, y + h, x, y + h, x, y));
+                    break;
+                case 1:
+                    strokes.add(PenStrokes.polyline(3, 1, i, x, y, x + w, y + h, x - w / 2, y + h, x, y));
+                    break;
+                case 2:
+                    strokes.add(PenStrokes.polyline(3, 1, i, x, y, x + w, y + h / 3));
+                    break;
+                default:
+                    strokes.add(PenStrokes.scribble(100 + random.nextInt(300), i));
+            }
+        }
+        
+        return strokes;
+    }
+    
+    private static void offer(PenPipeline pipeline, int pointer, int kind, int x, int y, long time) {
+        while(!pipeline.offer(pointer, kind, x, y, time)) {
+            Thread.yield();
+        }
+    }
+    
+    @Test
+    public void recognizesAsTheEngineDoes() throws InterruptedException {
+        List<PenStrokes> strokes = strokes();
+        
+        RecordingListener expected = new RecordingListener();
+        RecognitionEngine engine = new RecognitionEngine(null, VOCABULARY, 0, 0, FILTER, expected);
+        for(int i = 0; i < strokes.size(); i++) {
+            PenStrokes stroke = strokes.get(i);
+            engine.recognize(i % POINTERS, stroke.xs[0], stroke.ys[0], stroke.moves());
+        }
+        
+        RecordingListener actual = new RecordingListener();
+        try(RecognitionRuntime runtime = new RecognitionRuntime("pipeline-test")) {
+            PenPipeline pipeline = new PenPipeline(null, VOCABULARY, 0, FILTER, actual, 64);
+            pipeline.start(runtime);
+            
+            // The strokes of the pointers are drawn at the same time, their
+            // events interleaved
+            for(int first = 0; first < strokes.size(); first += POINTERS) {
+                int pointers = Math.min(POINTERS, strokes.size() - first);
+                for(int p = 0; p < pointers; p++) {
+                    PenStrokes stroke = strokes.get(first + p);
+                    offer(pipeline, p, PenEvents.DOWN, stroke.xs[0], stroke.ys[0], 0);
+                }
+                for(int i = 1, drawn = 0; drawn < pointers; i++) {
+                    drawn = 0;
+                    for(int p = 0; p < pointers; p++) {
+                        PenStrokes stroke = strokes.get(first + p);
+                        if(i < stroke.size()) {
+                            offer(pipeline, p, PenEvents.MOVED, stroke.xs[i], stroke.ys[i], i);
+                        } else if(i == stroke.size()) {
+                            offer(pipeline, p, PenEvents.UP, stroke.xs[i - 1], stroke.ys[i - 1], i);
+                        } else {
+                            drawn++;
+                        }
+                    }
+                }
+            }
+            pipeline.close();
+            
+            assertTrue(pipeline.awaitEnd(60, TimeUnit.SECONDS));
+        }
+        
+        for(int p = 0; p < POINTERS; p++) {
+            assertEquals(STROKES / POINTERS, expected.outcomes(p).size());
+            assertEquals(expected.outcomes(p), actual.outcomes(p));
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author jakob
+ */
+public class PenRecordingTest {
+    private static final int EVENTS = 20000;
+    // Small enough for the events to cross many windows
+    private static final long WINDOW_SIZE = 64;
+    private static final int[] POINTERS = {0, 1, 2, 9, 1000, -1, Integer.MAX_VALUE, Integer.MIN_VALUE};
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    private final int[] kinds = new int[EVENTS];
+    private final int[] pointers = new int[EVENTS];
+    private final int[] xs = new int[EVENTS];
+    private final int[] ys = new int[EVENTS];
+    private final long[] times = new long[EVENTS];
+    
+    // Mostly small steps, with pointer changes, steps back and jumps to the
+    // ends of the ranges in between
+    private void generate() {
+        Random random = new Random(1);
+        int pointer = 0;
+        int x = 0;
+        int y = 0;
+        long time = 0;
+        
+        for(int i = 0; i < EVENTS; i++) {
+            if(random.nextInt(10) == 0) {
+                pointer = POINTERS[random.nextInt(POINTERS.length)];
+            }
+            switch(random.nextInt(50)) {
+                case 0:
+                    x = Integer.MIN_VALUE;
+                    y = Integer.MAX_VALUE;
+                    time = Long.MIN_VALUE;
+                    break;
+                case 1:
+                    x = Integer.MAX_VALUE;
+                    y = Integer.MIN_VALUE;
+                    time = Long.MAX_VALUE;
+                    break;
+                default:
+                    x += random.nextInt(101) - 50;
+                    y += random.nextInt(101) - 50;
+                    time += random.nextInt(100) - 10;
+            }
+            
+            kinds[i] = random.nextInt(3);
+            pointers[i] = pointer;
+            xs[i] = x;
+            ys[i] = y;
+            times[i] = time;
+        }
+    }
+    
+    private Path record() throws IOException {
+        generate();
+        Path path = folder.newFile("pen.rec").toPath();
+        PenRecorder recorder = new PenRecorder(path, EVENTS * 2);
+        for(int i = 0; i < EVENTS; i++) {
+            recorder.accept(pointers[i], kinds[i], xs[i], ys[i], times[i]);
+        }
+        recorder.close();
+        
+        assertEquals(0, recorder.getDropped());
+        return path;
+    }
+    
+    private void assertEvent(int i, PenInput input) {
+        assertEquals("kind " + i, kinds[i], input.peekKind());
+        assertEquals("pointer " + i, pointers[i], input.peekPointer());
+        assertEquals("x " + i, xs[i], input.peekX());
+        assertEquals("y " + i, ys[i], input.peekY());
+        assertEquals("time " + i, times[i], input.peekTime());
+    }
+    
+    private void assertEvent(int i, PenBatch batch, int index) {
+        assertEquals("kind " + i, kinds[i], batch.kind(index));
+        assertEquals("pointer " + i, pointers[i], batch.pointer(index));
+        assertEquals("x " + i, xs[i], batch.x(index));
+        assertEquals("y " + i, ys[i], batch.y(index));
+        assertEquals("time " + i, times[i], batch.time(index));
+    }
+    
+    @Test
+    public void replaysWhatWasRecorded() throws IOException {
+        Path path = record();
+        
+        for(long windowSize : new long[] {WINDOW_SIZE, 1L << 28}) {
+            try(PenRecording.Replay replay = PenRecording.replay(path, windowSize)) {
+                for(int i = 0; i < EVENTS; i++) {
+                    assertFalse(replay.atEnd());
+                    assertEvent(i, replay);
+                    replay.skip();
+                }
+                assertTrue(replay.atEnd());
+            }
+        }
+    }
+    
+    @Test
+    public void replaysWhatWasRecordedInBatches() throws IOException {
+        Path path = record();
+        
+        try(PenRecording.Replay replay = PenRecording.replay(path, WINDOW_SIZE)) {
+            PenBatch batch = new PenBatch(16);
+            int i = 0;
+            int count;
+            while((count = replay.fill(batch)) > 0) {
+                for(int b = 0; b < count; b++) {
+                    assertEvent(i + b, batch, b);
+                }
+                // Only part of a batch at times, as matchers do
+                int taken = Math.max(1, count / 2);
+                replay.skip(taken);
+                i += taken;
+            }
+            assertEquals(EVENTS, i);
+        }
+    }
+    
+    @Test
+    public void recoversStatesAcrossWindows() throws IOException {
+        Path path = record();
+        
+        try(PenRecording.Replay replay = PenRecording.replay(path, WINDOW_SIZE)) {
+            replay.skip(5000);
+            InputState state = replay.getState();
+            replay.skip(3000);
+            assertEvent(8000, replay);
+            
+            state.recover();
+            
+            for(int i = 5000; i < EVENTS; i++) {
+                assertEvent(i, replay);
+                replay.skip();
+            }
+            assertTrue(replay.atEnd());
+        }
+    }
+    
+    @Test
+    public void dropsAnEventCutOffWhileRecording() throws IOException {
+        Path path = record();
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+        
+        try(PenRecording.Replay replay = PenRecording.replay(path, WINDOW_SIZE)) {
+            replay.skip(EVENTS - 2);
+            assertEvent(EVENTS - 2, replay);
+            replay.skip();
+            assertTrue(replay.atEnd());
+        }
+    }
+}
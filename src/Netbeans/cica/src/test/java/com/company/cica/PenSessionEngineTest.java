@@ -0,0 +1,169 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ *
+ * @author jakob
+ */
+public class PenSessionEngineTest {
+    private final RecognitionRuntime workers = new RecognitionRuntime("sessions", false);
+    
+    // Describes each stroke under its pointer and start, once read to its end
+    private static class Describing implements PenSessionEngine.StrokeRecognizer {
+        final Map<String, String> strokes = new ConcurrentHashMap<>();
+
+        @Override
+        public void recognize(int pointer, int x, int y, PenInput events) throws InterruptedException {
+            StringBuilder description = new StringBuilder();
+            boolean up = false;
+            while(!events.atEnd()) {
+                if(events.peekPointer() != pointer) {
+                    description.append("pointer ").append(events.peekPointer()).append(" ");
+                }
+                up = events.peekKind() == PenEvents.UP;
+                description.append(up ? "up " : "move ").append(events.peekX()).append(",").append(events.peekY()).append(" ");
+                events.skip();
+            }
+            if(!up) {
+                description.append("cut");
+            }
+            
+            strokes.put(pointer + "@" + x + "," + y, description.toString().trim());
+        }
+    }
+    
+    @After
+    public void closeWorkers() {
+        workers.close();
+    }
+    
+    private void awaitStrokes() throws InterruptedException {
+        workers.shutdown();
+        assertTrue(workers.awaitTermination(5, TimeUnit.SECONDS));
+    }
+    
+    @Test
+    public void keepsTheStrokesOfThePointersApart() throws InterruptedException {
+        Describing recognizer = new Describing();
+        PenSessionEngine engine = new PenSessionEngine(workers, recognizer, 64);
+        
+        for(int pointer = 0; pointer < 3; pointer++) {
+            engine.dispatch(pointer, PenEvents.DOWN, pointer * 100, 0, 0);
+        }
+        for(int i = 1; i <= 3; i++) {
+            for(int pointer = 0; pointer < 3; pointer++) {
+                engine.dispatch(pointer, PenEvents.MOVED, pointer * 100 + i, i, i);
+            }
+        }
+        assertEquals(3, engine.activeSessions());
+        for(int pointer = 0; pointer < 3; pointer++) {
+            engine.dispatch(pointer, PenEvents.UP, pointer * 100 + 3, 3, 4);
+        }
+        // Moves of a pointer that is not down go nowhere
+        engine.dispatch(7, PenEvents.MOVED, 700, 0, 5);
+        
+        assertEquals(0, engine.activeSessions());
+        awaitStrokes();
+        assertEquals(3, recognizer.strokes.size());
+        assertEquals("move 1,1 move 2,2 move 3,3 up 3,3", recognizer.strokes.get("0@0,0"));
+        assertEquals("move 101,1 move 102,2 move 103,3 up 103,3", recognizer.strokes.get("1@100,0"));
+        assertEquals("move 201,1 move 202,2 move 203,3 up 203,3", recognizer.strokes.get("2@200,0"));
+    }
+    
+    @Test
+    public void endsAStrokeWhosePenUpWasLostAtTheNextPenDown() throws InterruptedException {
+        Describing recognizer = new Describing();
+        PenSessionEngine engine = new PenSessionEngine(workers, recognizer, 64);
+        
+        engine.dispatch(0, PenEvents.DOWN, 0, 0, 0);
+        engine.dispatch(0, PenEvents.MOVED, 1, 0, 1);
+        engine.dispatch(0, PenEvents.MOVED, 2, 0, 2);
+        engine.dispatch(0, PenEvents.DOWN, 50, 0, 3);
+        assertEquals(1, engine.activeSessions());
+        engine.dispatch(0, PenEvents.MOVED, 51, 0, 4);
+        engine.dispatch(0, PenEvents.UP, 51, 0, 5);
+        
+        awaitStrokes();
+        assertEquals("move 1,0 move 2,0 cut", recognizer.strokes.get("0@0,0"));
+        assertEquals("move 51,0 up 51,0", recognizer.strokes.get("0@50,0"));
+    }
+    
+    @Test
+    public void endsTheStrokesInProgressWithTheEvents() throws InterruptedException {
+        Describing recognizer = new Describing();
+        PenSessionEngine engine = new PenSessionEngine(workers, recognizer, 64);
+        PenEventBuffer events = new PenEventBuffer(64);
+        events.offer(0, PenEvents.DOWN, 0, 0, 0);
+        events.offer(0, PenEvents.MOVED, 1, 0, 1);
+        events.offer(1, PenEvents.DOWN, 100, 0, 2);
+        events.close();
+        
+        engine.dispatch(events);
+        
+        assertEquals(0, engine.activeSessions());
+        awaitStrokes();
+        assertEquals("move 1,0 cut", recognizer.strokes.get("0@0,0"));
+        assertEquals("cut", recognizer.strokes.get("1@100,0"));
+    }
+    
+    @Test
+    public void coalescesTheMovesOfAStrokeThatFallsBehind() throws InterruptedException {
+        CountDownLatch dispatched = new CountDownLatch(1);
+        Describing describing = new Describing();
+        PenSessionEngine engine = new PenSessionEngine(workers, (pointer, x, y, events) -> {
+            dispatched.await();
+            describing.recognize(pointer, x, y, events);
+        }, 16);
+        
+        engine.dispatch(0, PenEvents.DOWN, 0, 0, 0);
+        for(int i = 1; i <= 100; i++) {
+            engine.dispatch(0, PenEvents.MOVED, i, 0, i);
+        }
+        engine.dispatch(0, PenEvents.UP, 100, 0, 101);
+        dispatched.countDown();
+        
+        awaitStrokes();
+        String description = describing.strokes.get("0@0,0");
+        String[] stroke = description.split(" ");
+        assertTrue(stroke.length / 2 < 16);
+        assertTrue(description, description.endsWith("move 100,0 up 100,0"));
+        // The moves that are left come in order
+        int last = 0;
+        for(int i = 1; i < stroke.length - 2; i += 2) {
+            int x = Integer.parseInt(stroke[i].split(",")[0]);
+            assertTrue(x > last);
+            last = x;
+        }
+    }
+}
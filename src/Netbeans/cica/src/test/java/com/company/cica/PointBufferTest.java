@@ -0,0 +1,107 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.awt.Rectangle;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+
+/**
+ *
+ * @author jakob
+ */
+public class PointBufferTest {
+    private static final int POINTS = 200000;
+    
+    @Test
+    public void aSnapshotKeepsItsPointsAsTheBufferGrows() {
+        PointBuffer buffer = new PointBuffer(0, 0);
+        buffer.append(1, -1);
+        PointBuffer.Points snapshot = buffer.snapshot();
+        
+        for(int i = 2; i < 100; i++) {
+            buffer.append(i, -i);
+        }
+        
+        assertEquals(2, snapshot.count);
+        assertEquals(1, snapshot.xs[1]);
+        assertEquals(-1, snapshot.ys[1]);
+        assertEquals(100, buffer.size());
+        assertEquals(new Rectangle(0, -99, 99, 99), buffer.getBounds());
+    }
+    
+    @Test
+    public void readersSeeEveryPointPublished() throws InterruptedException {
+        PointBuffer buffer = new PointBuffer(0, 0);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            for(int i = 1; i < POINTS; i++) {
+                buffer.append(i, -i);
+            }
+        });
+        Thread[] readers = new Thread[2];
+        for(int r = 0; r < readers.length; r++) {
+            readers[r] = new Thread(() -> {
+                try {
+                    int lastCount = 0;
+                    while(lastCount < POINTS) {
+                        PointBuffer.Points snapshot = buffer.snapshot();
+                        // Taken after the snapshot, so they cover its points
+                        Rectangle bounds = buffer.getBounds();
+                        assertTrue(snapshot.count >= lastCount);
+                        assertTrue(snapshot.xs.length >= snapshot.count && snapshot.ys.length >= snapshot.count);
+                        // The newest points are the ones a reader could miss
+                        for(int i = Math.max(0, snapshot.count - 64); i < snapshot.count; i++) {
+                            assertEquals(i, snapshot.xs[i]);
+                            assertEquals(-i, snapshot.ys[i]);
+                        }
+                        int last = snapshot.count - 1;
+                        assertTrue(bounds.x + bounds.width >= last && bounds.y <= -last);
+                        lastCount = snapshot.count;
+                    }
+                } catch (Throwable ex) {
+                    failure.compareAndSet(null, ex);
+                }
+            });
+            readers[r].start();
+        }
+        writer.start();
+        
+        writer.join();
+        for(Thread reader: readers) {
+            reader.join(10000);
+        }
+        
+        if(failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+        PointBuffer.Points snapshot = buffer.snapshot();
+        for(int i = 0; i < POINTS; i++) {
+            assertEquals(i, snapshot.xs[i]);
+            assertEquals(-i, snapshot.ys[i]);
+        }
+    }
+}
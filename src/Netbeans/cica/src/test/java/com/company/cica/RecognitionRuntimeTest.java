@@ -0,0 +1,145 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+
+/**
+ *
+ * @author jakob
+ */
+public class RecognitionRuntimeTest {
+    private static Thread threadOf(RecognitionRuntime runtime) throws InterruptedException {
+        AtomicReference<Thread> thread = new AtomicReference<>();
+        CountDownLatch ran = new CountDownLatch(1);
+        runtime.execute(() -> {
+            thread.set(Thread.currentThread());
+            ran.countDown();
+        });
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        return thread.get();
+    }
+    
+    private static boolean isVirtual(Thread thread) {
+        try {
+            return (Boolean)Thread.class.getMethod("isVirtual").invoke(thread);
+        } catch (ReflectiveOperationException ex) {
+            return false;
+        }
+    }
+    
+    @Test
+    public void runsOnPooledDaemonThreadsUnlessVirtualOnesArePreferred() throws InterruptedException {
+        try(RecognitionRuntime runtime = new RecognitionRuntime("pooled", false)) {
+            Thread thread = threadOf(runtime);
+            
+            assertFalse(runtime.isVirtual());
+            assertFalse(isVirtual(thread));
+            assertTrue(thread.isDaemon());
+            assertTrue(thread.getName(), thread.getName().startsWith("pooled-"));
+        }
+    }
+    
+    @Test
+    public void runsOnVirtualThreadsWhereTheJdkHasThem() throws InterruptedException {
+        try(RecognitionRuntime runtime = new RecognitionRuntime("preferred")) {
+            Thread thread = threadOf(runtime);
+            
+            // Falls back to pooled daemon threads on older JDKs
+            assertEquals(runtime.isVirtual(), isVirtual(thread));
+            assertTrue(thread.isDaemon());
+            assertTrue(thread.getName(), thread.getName().startsWith("preferred-"));
+        }
+    }
+    
+    @Test
+    public void closeInterruptsTasksThatOutlastTheGrace() throws InterruptedException {
+        RecognitionRuntime runtime = new RecognitionRuntime("closing", false);
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        runtime.execute(() -> {
+            started.countDown();
+            try {
+                new CountDownLatch(1).await();
+            } catch (InterruptedException ex) {
+                interrupted.set(true);
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        
+        runtime.close(50, TimeUnit.MILLISECONDS);
+        
+        assertTrue(interrupted.get());
+        assertTrue(runtime.isTerminated());
+        assertEquals(0, runtime.activeCount());
+    }
+    
+    @Test
+    public void closeLetsTasksEndWithinTheGrace() throws InterruptedException {
+        RecognitionRuntime runtime = new RecognitionRuntime("graceful", false);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        runtime.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                interrupted.set(true);
+            }
+        });
+        
+        new Thread(release::countDown).start();
+        runtime.close(5, TimeUnit.SECONDS);
+        
+        assertFalse(interrupted.get());
+        assertTrue(runtime.isTerminated());
+    }
+    
+    @Test
+    public void failedTasksEndAsWell() throws InterruptedException {
+        RecognitionRuntime runtime = new RecognitionRuntime("failing", false);
+        runtime.execute(() -> {
+            throw new IllegalStateException("Expected by the test");
+        });
+        
+        runtime.shutdown();
+        
+        assertTrue(runtime.awaitTermination(5, TimeUnit.SECONDS));
+    }
+    
+    @Test(expected = RejectedExecutionException.class)
+    public void takesNoTasksOnceShutDown() {
+        RecognitionRuntime runtime = new RecognitionRuntime("shut", false);
+        runtime.shutdown();
+        
+        runtime.execute(() -> { });
+    }
+}
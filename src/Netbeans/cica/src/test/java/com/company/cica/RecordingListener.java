@@ -0,0 +1,74 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps what becomes of the strokes of each pointer, in order: the drawing
+ * of the recognized action, "-" for rejected and "abandoned".
+ *
+ * @author jakob
+ */
+class RecordingListener implements RecognitionListener {
+    private final ConcurrentHashMap<Integer, List<String>> outcomes = new ConcurrentHashMap<>();
+    
+    List<String> outcomes(int pointer) {
+        return outcomes.getOrDefault(pointer, Collections.emptyList());
+    }
+    
+    private void add(int pointer, String outcome) {
+        outcomes.computeIfAbsent(pointer, p -> Collections.synchronizedList(new ArrayList<>())).add(outcome);
+    }
+
+    @Override
+    public void strokeStarted(int pointer, int x, int y) {
+    }
+
+    @Override
+    public void strokeMoved(int pointer, int x, int y) {
+    }
+
+    @Override
+    public void previewChanged(int pointer, CanvasAction preview) {
+    }
+
+    @Override
+    public void recognized(int pointer, CanvasAction action) {
+        add(pointer, CanvasActions.describe(action));
+    }
+
+    @Override
+    public void rejected(int pointer) {
+        add(pointer, "-");
+    }
+
+    @Override
+    public void abandoned(int pointer) {
+        add(pointer, "abandoned");
+    }
+}
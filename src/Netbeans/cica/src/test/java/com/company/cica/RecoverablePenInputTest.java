@@ -0,0 +1,102 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ *
+ * @author jakob
+ */
+public class RecoverablePenInputTest {
+    private static final int MAX_LOOKBACK = 256;
+    
+    private static RecoverablePenInput longStroke() {
+        return PenInputs.toRecoverable(PenStrokes.scribble(20000, 1).moves(), MAX_LOOKBACK);
+    }
+    
+    @Test
+    public void recoversStateWithinLookback() {
+        RecoverablePenInput input = longStroke();
+        input.skip(1000);
+        int x = input.peekX();
+        int y = input.peekY();
+        
+        InputState state = input.getState();
+        input.skip(MAX_LOOKBACK - 1);
+        state.recover();
+        
+        assertEquals(x, input.peekX());
+        assertEquals(y, input.peekY());
+        state.discard();
+    }
+    
+    @Test
+    public void discardedStatesDoNotPinLookback() {
+        RecoverablePenInput input = longStroke();
+        
+        while(!input.atEnd()) {
+            InputState state = input.getState();
+            input.skip();
+            state.recover();
+            input.skip();
+            state.discard();
+        }
+        
+        InputState state = input.getState();
+        state.recover();
+        state.discard();
+    }
+    
+    @Test
+    public void discardingTwiceKeepsOtherMarks() {
+        RecoverablePenInput input = longStroke();
+        int mark = input.mark();
+        
+        InputState state = input.getState();
+        state.discard();
+        state.discard();
+        
+        input.skip(MAX_LOOKBACK / 2);
+        input.reset(mark);
+        input.release(mark);
+    }
+    
+    @Test
+    public void heldStatePinsLookback() {
+        RecoverablePenInput input = longStroke();
+        InputState state = input.getState();
+        input.skip(MAX_LOOKBACK * 4);
+        
+        try {
+            state.recover();
+            fail("Recovered past the lookback.");
+        } catch (LookbackExceededException ex) {
+        } finally {
+            state.discard();
+        }
+    }
+}
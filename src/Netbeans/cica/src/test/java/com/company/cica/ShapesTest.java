@@ -0,0 +1,117 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ *
+ * @author jakob
+ */
+public class ShapesTest {
+    private static final Shapes.Shape[] SHAPES = {
+        Shapes.rectangle((xs, ys) -> "rect"),
+        Shapes.triangle((xs, ys) -> "triangle"),
+        Shapes.line((xs, ys) -> "line")
+    };
+    
+    private static String recognize(PenStrokes stroke) throws InterruptedException {
+        Object result = Shapes.matcher(stroke.xs[0], stroke.ys[0], SHAPES)
+            .match(PenInputs.toRecoverable(PenInputs.stroke(stroke.moves(), (x, y) -> { })));
+        return result != null ? (String)result : "-";
+    }
+    
+    // A regular polygon around (300, 300), drawn from the given corner on
+    private static PenStrokes polygon(int sides, double radius, double rotation, boolean clockwise, int start, double noise, long seed) {
+        int[] corners = new int[(sides + 1) * 2];
+        for(int i = 0; i <= sides; i++) {
+            double angle = rotation + (clockwise ? 1 : -1) * 2 * Math.PI * (start + i) / sides;
+            corners[i * 2] = (int)Math.round(300 + radius * Math.cos(angle));
+            corners[i * 2 + 1] = (int)Math.round(300 + radius * Math.sin(angle));
+        }
+        
+        return PenStrokes.polyline(3, noise, seed, corners);
+    }
+    
+    // Measured over every fifth point, so the jitter of the points does not
+    // add to the length
+    private static double chordToLength(PenStrokes stroke) {
+        double length = 0;
+        int last = 0;
+        for(int i = 5; i < stroke.size(); i += 5) {
+            length += Math.hypot(stroke.xs[i] - stroke.xs[last], stroke.ys[i] - stroke.ys[last]);
+            last = i;
+        }
+        
+        return Math.hypot(stroke.xs[last] - stroke.xs[0], stroke.ys[last] - stroke.ys[0]) / length;
+    }
+    
+    @Test
+    public void recognizesCanonicalShapes() throws InterruptedException {
+        Random random = new Random(1);
+        
+        for(int i = 0; i < 200; i++) {
+            double noise = i % 2;
+            boolean clockwise = random.nextBoolean();
+            int x = 100 + random.nextInt(100);
+            int y = 100 + random.nextInt(100);
+            int w = 60 + random.nextInt(200);
+            int h = 60 + random.nextInt(200);
+            PenStrokes rect = clockwise
+                ? PenStrokes.polyline(3, noise, i, x, y, x + w, y, x + w, y + h, x, y + h, x, y)
+                : PenStrokes.polyline(3, noise, i, x, y, x, y + h, x + w, y + h, x + w, y, x, y);
+            PenStrokes triangle = polygon(3, 50 + random.nextInt(100), random.nextDouble() * Math.PI, clockwise, random.nextInt(3), noise, i);
+            double angle = random.nextDouble() * 2 * Math.PI;
+            PenStrokes line = PenStrokes.polyline(3, noise, i, x, y, x + (int)(w * Math.cos(angle)), y + (int)(w * Math.sin(angle)));
+            
+            assertEquals("rect " + i, "rect", recognize(rect));
+            assertEquals("triangle " + i, "triangle", recognize(triangle));
+            assertEquals("line " + i, "line", recognize(line));
+        }
+    }
+    
+    @Test
+    public void recognizesNeitherCirclesNorScribbles() throws InterruptedException {
+        Random random = new Random(2);
+        
+        for(int i = 0; i < 200; i++) {
+            PenStrokes circle = polygon(40, 40 + random.nextInt(100), 0, random.nextBoolean(), 0, i % 3, i);
+            PenStrokes pentagon = polygon(5, 50 + random.nextInt(100), random.nextDouble() * Math.PI, random.nextBoolean(), 0, i % 3, i);
+            
+            assertEquals("circle " + i, "-", recognize(circle));
+            assertEquals("pentagon " + i, "-", recognize(pentagon));
+            // Now and then a wandering stroke comes out close to straight
+            PenStrokes scribble = PenStrokes.scribble(100 + random.nextInt(300), i);
+            String result = recognize(scribble);
+            if(result.equals("line")) {
+                assertTrue("scribble " + i, chordToLength(scribble) > 0.85);
+            } else {
+                assertEquals("scribble " + i, "-", result);
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Test;
+
+/**
+ *
+ * @author jakob
+ */
+public class SpatialGridTest {
+    // What the grid should hold, checked by brute force
+    private static class Box {
+        final int id;
+        int minX;
+        int minY;
+        int maxX;
+        int maxY;
+        SpatialGrid.Entry<Integer> entry;
+
+        Box(int id) {
+            this.id = id;
+        }
+        
+        void move(Random random) {
+            // Mostly small, now and then spanning too many cells to be filed
+            // in them, and around the origin so cells go negative
+            int width = random.nextInt(10) == 0 ? 200 + random.nextInt(600) : random.nextInt(40);
+            int height = random.nextInt(40);
+            minX = random.nextInt(1000) - 500;
+            minY = random.nextInt(1000) - 500;
+            maxX = minX + width;
+            maxY = minY + height;
+        }
+        
+        boolean overlaps(int minX, int minY, int maxX, int maxY) {
+            return this.minX <= maxX && minX <= this.maxX && this.minY <= maxY && minY <= this.maxY;
+        }
+        
+        long distanceSquared(int x, int y) {
+            long dx = x < minX ? minX - x : x > maxX ? x - maxX : 0;
+            long dy = y < minY ? minY - y : y > maxY ? y - maxY : 0;
+            return dx * dx + dy * dy;
+        }
+    }
+    
+    private static Set<Integer> query(SpatialGrid<Integer> grid, int minX, int minY, int maxX, int maxY) {
+        Set<Integer> found = new HashSet<>();
+        grid.query(minX, minY, maxX, maxY, id -> assertTrue("reported twice", found.add(id)));
+        return found;
+    }
+    
+    @Test
+    public void answersLikeABruteForceSearch() {
+        SpatialGrid<Integer> grid = new SpatialGrid<>(32);
+        ArrayList<Box> boxes = new ArrayList<>();
+        Random random = new Random(1);
+        
+        for(int i = 0; i < 5000; i++) {
+            int operation = random.nextInt(10);
+            if(operation < 4 || boxes.isEmpty()) {
+                Box box = new Box(i);
+                box.move(random);
+                box.entry = grid.add(box.id, box.minX, box.minY, box.maxX, box.maxY);
+                boxes.add(box);
+            } else if(operation < 7) {
+                Box box = boxes.get(random.nextInt(boxes.size()));
+                box.move(random);
+                box.entry.update(box.minX, box.minY, box.maxX, box.maxY);
+            } else {
+                // Removing from the middle of a cell moves its last entry
+                Box box = boxes.remove(random.nextInt(boxes.size()));
+                box.entry.remove();
+            }
+            
+            int minX = random.nextInt(1200) - 600;
+            int minY = random.nextInt(1200) - 600;
+            int maxX = minX + random.nextInt(300);
+            int maxY = minY + random.nextInt(300);
+            Set<Integer> expected = new HashSet<>();
+            for(Box box: boxes) {
+                if(box.overlaps(minX, minY, maxX, maxY)) {
+                    expected.add(box.id);
+                }
+            }
+            assertEquals("query " + i, expected, query(grid, minX, minY, maxX, maxY));
+            assertEquals(boxes.size(), grid.size());
+            
+            int radius = random.nextInt(100);
+            long nearest = (long)radius * radius + 1;
+            for(Box box: boxes) {
+                nearest = Math.min(nearest, box.distanceSquared(minX, minY));
+            }
+            Integer found = grid.nearest(minX, minY, radius);
+            if(nearest > (long)radius * radius) {
+                assertNull("nearest " + i, found);
+            } else {
+                long distance = -1;
+                for(Box box: boxes) {
+                    if(box.id == found) {
+                        distance = box.distanceSquared(minX, minY);
+                    }
+                }
+                assertEquals("nearest " + i, nearest, distance);
+            }
+        }
+    }
+    
+    @Test
+    public void removesOnlyTheEntryOfTheHandle() {
+        SpatialGrid<Integer> grid = new SpatialGrid<>(64);
+        // The same value, in the same cell, twice
+        SpatialGrid.Entry<Integer> first = grid.add(1, 10, 10, 20, 20);
+        SpatialGrid.Entry<Integer> second = grid.add(1, 10, 10, 20, 20);
+        SpatialGrid.Entry<Integer> other = grid.add(2, 15, 15, 25, 25);
+        
+        first.remove();
+        first.remove();
+        
+        assertEquals(2, grid.size());
+        ArrayList<Integer> found = new ArrayList<>();
+        grid.query(0, 0, 30, 30, found::add);
+        found.sort(null);
+        assertEquals("[1, 2]", found.toString());
+        
+        second.remove();
+        other.remove();
+        
+        assertEquals(0, grid.size());
+        assertEquals(new HashSet<>(), query(grid, -1000, -1000, 1000, 1000));
+        assertNull(grid.nearest(15, 15, 100));
+    }
+    
+    @Test(expected = IllegalStateException.class)
+    public void cannotUpdateARemovedEntry() {
+        SpatialGrid<Integer> grid = new SpatialGrid<>(64);
+        SpatialGrid.Entry<Integer> entry = grid.add(1, 10, 10, 20, 20);
+        
+        entry.remove();
+        entry.update(30, 30, 40, 40);
+    }
+}
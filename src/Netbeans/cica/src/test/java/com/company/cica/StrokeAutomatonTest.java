@@ -0,0 +1,118 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ *
+ * @author jakob
+ */
+public class StrokeAutomatonTest {
+    private static Object match(Matcher matcher, PenStrokes stroke) throws InterruptedException {
+        PenInput input = PenInputs.toRecoverable(PenInputs.stroke(stroke.moves(), (x, y) -> { }));
+        return matcher.match(input);
+    }
+    
+    private static void assertSameAsCombinators(PenStrokes stroke) throws InterruptedException {
+        int x = stroke.xs[0];
+        int y = stroke.ys[0];
+        
+        assertEquals(
+            CanvasActions.describe(match(Matchers.lineCanvasActionMatcher(x, y), stroke)),
+            CanvasActions.describe(match(Matchers.compiledLineCanvasActionMatcher(x, y), stroke)));
+        assertEquals(
+            CanvasActions.describe(match(Matchers.rectCanvasActionMatcher(x, y), stroke)),
+            CanvasActions.describe(match(Matchers.compiledRectCanvasActionMatcher(x, y), stroke)));
+    }
+    
+    private static List<PenStrokes> strokes() {
+        Random random = new Random(5);
+        List<PenStrokes> strokes = new ArrayList<>();
+        
+        for(int i = 0; i < 300; i++) {
+            int x = 100 + random.nextInt(200);
+            int y = 100 + random.nextInt(200);
+            int w = 30 + random.nextInt(300);
+            int h = 30 + random.nextInt(300);
+            double step = 1 + random.nextInt(4);
+            double noise = random.nextDouble() * 2;
+            
+            switch(i % 6) {
+                case 0:
+                    strokes.add(PenStrokes.polyline(step, noise, i, x, y, x + w, y + h / 3));
+                    break;
+                case 1:
+                    strokes.add(PenStrokes.polyline(step, noise, i, x, y, x + w, y, x + w, y + h, x, y + h, x, y));
+                    break;
+                case 2:
+                    strokes.add(PenStrokes.polyline(step, noise, i, x, y, x, y + h, x + w, y + h, x + w, y, x, y));
+                    break;
+                case 3:
+                    // Ends short of where it started
+                    strokes.add(PenStrokes.polyline(step, noise, i, x, y, x + w, y, x + w, y + h, x, y + h, x, y + h / 2));
+                    break;
+                case 4:
+                    strokes.add(PenStrokes.polyline(step, noise, i, x, y, x + w, y, x, y + h, x + w, y + h, x, y + 2 * h));
+                    break;
+                default:
+                    strokes.add(PenStrokes.scribble(50 + random.nextInt(300), i));
+                    break;
+            }
+        }
+        
+        return strokes;
+    }
+    
+    @Test
+    public void acceptsWhatTheCombinatorsAccept() throws InterruptedException {
+        for(PenStrokes stroke: strokes()) {
+            assertSameAsCombinators(stroke);
+        }
+    }
+    
+    @Test
+    public void recognizesCanonicalShapes() throws InterruptedException {
+        PenStrokes line = PenStrokes.polyline(2, 0, 1, 20, 20, 320, 120);
+        assertEquals("(20,20)(320,120)", CanvasActions.describe(match(Matchers.compiledLineCanvasActionMatcher(20, 20), line)));
+        
+        PenStrokes rect = PenStrokes.polyline(1, 0, 1, 20, 20, 220, 20, 220, 170, 20, 170, 20, 20);
+        assertNotEquals("-", CanvasActions.describe(match(Matchers.compiledRectCanvasActionMatcher(20, 20), rect)));
+        assertEquals("-", CanvasActions.describe(match(Matchers.compiledLineCanvasActionMatcher(20, 20), rect)));
+    }
+    
+    @Test
+    public void doesNotCheckTheTurnIntoTheLastLeg() throws InterruptedException {
+        // The last leg turns counter clockwise, which the turn checks of the
+        // earlier legs would reject
+        PenStrokes stroke = PenStrokes.polyline(1, 0, 1, 20, 20, 220, 20, 220, 220, 150, 90, 20, 20);
+        assertNotEquals("-", CanvasActions.describe(match(Matchers.rectCanvasActionMatcher(20, 20), stroke)));
+        assertSameAsCombinators(stroke);
+    }
+}
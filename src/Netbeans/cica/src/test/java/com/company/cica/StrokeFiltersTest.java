@@ -0,0 +1,133 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.util.Arrays;
+import org.junit.Test;
+
+/**
+ *
+ * @author jakob
+ */
+public class StrokeFiltersTest {
+    // The points a filter passes on for a stroke, from its first point on,
+    // as x, y pairs
+    private static int[] filter(StrokeFilter filter, PenStrokes stroke) {
+        int[][] points = {{stroke.xs[0], stroke.ys[0]}};
+        int[] count = {2};
+        StrokeFilter.Sink sink = (x, y, time) -> {
+            if(count[0] + 2 > points[0].length) {
+                points[0] = Arrays.copyOf(points[0], points[0].length * 2 + 2);
+            }
+            points[0][count[0]++] = x;
+            points[0][count[0]++] = y;
+        };
+        
+        filter.reset(stroke.xs[0], stroke.ys[0]);
+        for(int i = 1; i < stroke.size(); i++) {
+            filter.point(stroke.xs[i], stroke.ys[i], i, sink);
+        }
+        filter.end(sink);
+        
+        return Arrays.copyOf(points[0], count[0]);
+    }
+    
+    private static double distanceToSegment(double px, double py, double x1, double y1, double x2, double y2) {
+        double dx = x2 - x1;
+        double dy = y2 - y1;
+        double lengthSquared = dx * dx + dy * dy;
+        double t = lengthSquared == 0 ? 0 : Math.max(0, Math.min(1, ((px - x1) * dx + (py - y1) * dy) / lengthSquared));
+        return Math.hypot(px - x1 - t * dx, py - y1 - t * dy);
+    }
+    
+    private static void assertEndsAtLastPoint(int[] points, PenStrokes stroke) {
+        assertEquals(stroke.xs[stroke.size() - 1], points[points.length - 2]);
+        assertEquals(stroke.ys[stroke.size() - 1], points[points.length - 1]);
+    }
+    
+    @Test
+    public void resamplesAtEvenSpacing() {
+        // Unevenly drawn, with a corner and a point repeated
+        PenStrokes stroke = new PenStrokes(
+            new int[] {0, 1, 5, 5, 30, 100, 100, 100, 103},
+            new int[] {0, 0, 0, 0, 0, 0, 20, 60, 60});
+        int[] points = filter(StrokeFilters.resample(4.0), stroke);
+        
+        // Off by the rounding of both ends, or cut short by the corner
+        for(int i = 2; i + 2 < points.length; i += 2) {
+            double distance = Math.hypot(points[i] - points[i - 2], points[i + 1] - points[i - 1]);
+            boolean aroundCorner = points[i - 2] < 100 && points[i + 1] > 0;
+            assertTrue("point " + i / 2 + " " + distance, Math.abs(distance - 4.0) <= Math.sqrt(2) || aroundCorner && distance < 4.0);
+        }
+        // 163 along the path
+        assertEquals(40 + 2, points.length / 2);
+        assertEndsAtLastPoint(points, stroke);
+    }
+    
+    @Test
+    public void simplifiesANoisyStraightLineWithinTheTolerance() {
+        PenStrokes stroke = PenStrokes.polyline(2, 1.0, 1, 0, 0, 400, 200);
+        int window = 32;
+        int[] points = filter(StrokeFilters.simplify(4.0, window), stroke);
+        
+        // Down to a point or two for each window it is read in
+        assertTrue("" + points.length / 2, points.length / 2 <= 2 * stroke.size() / (window - 1) + 2);
+        for(int i = 0; i < stroke.size(); i++) {
+            double distance = Double.POSITIVE_INFINITY;
+            for(int p = 2; p < points.length; p += 2) {
+                distance = Math.min(distance, distanceToSegment(stroke.xs[i], stroke.ys[i], points[p - 2], points[p - 1], points[p], points[p + 1]));
+            }
+            assertTrue("point " + i + " " + distance, distance <= 4.0);
+        }
+        assertEndsAtLastPoint(points, stroke);
+    }
+    
+    @Test
+    public void keepsTheCornersBeyondTheTolerance() {
+        PenStrokes stroke = PenStrokes.polyline(2, 0, 1, 0, 0, 40, 0, 40, 40);
+        int[] points = filter(StrokeFilters.simplify(1.0, 32), stroke);
+        
+        assertEquals("[0, 0, 40, 0, 40, 40]", Arrays.toString(points));
+    }
+    
+    @Test
+    public void smoothsExponentiallyAndEndsAtTheLastPoint() {
+        PenStrokes stroke = new PenStrokes(
+            new int[] {0, 100, 100, 100, 100},
+            new int[] {0, 0, 40, 40, 40});
+        int[] points = filter(StrokeFilters.smooth(0.5), stroke);
+        
+        // Each point half way from the last smoothed one to the next raw one
+        assertEquals("[0, 0, 50, 0, 75, 20, 88, 30, 94, 35, 100, 40]", Arrays.toString(points));
+        
+        PenStrokes line = PenStrokes.polyline(1, 0, 1, 0, 0, 200, 0);
+        int[] smoothed = filter(StrokeFilters.smooth(0.5), line);
+        for(int i = 1; i < smoothed.length; i += 2) {
+            assertEquals(0, smoothed[i]);
+        }
+        assertEndsAtLastPoint(smoothed, line);
+    }
+}
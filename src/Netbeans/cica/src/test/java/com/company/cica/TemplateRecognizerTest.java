@@ -0,0 +1,181 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 jakob.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.company.cica;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ *
+ * @author jakob
+ */
+public class TemplateRecognizerTest {
+    private static String recognize(PenStrokes stroke) throws InterruptedException {
+        Object result = Matchers.templateCanvasActionMatcher(stroke.xs[0], stroke.ys[0])
+            .match(PenInputs.toRecoverable(PenInputs.stroke(stroke.moves(), (x, y) -> { })));
+        return CanvasActions.describe(result);
+    }
+    
+    private static String line(PenStrokes stroke) {
+        int last = stroke.size() - 1;
+        return "(" + stroke.xs[0] + "," + stroke.ys[0] + ")(" + stroke.xs[last] + "," + stroke.ys[last] + ")";
+    }
+    
+    private static String rect(PenStrokes stroke) {
+        int minX = Integer.MAX_VALUE;
+        int minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        int maxY = Integer.MIN_VALUE;
+        for(int i = 0; i < stroke.size(); i++) {
+            minX = Math.min(minX, stroke.xs[i]);
+            minY = Math.min(minY, stroke.ys[i]);
+            maxX = Math.max(maxX, stroke.xs[i]);
+            maxY = Math.max(maxY, stroke.ys[i]);
+        }
+        
+        return "(" + minX + "," + minY + ")(" + maxX + "," + minY + ")(" + maxX + "," + maxY + ")(" + minX + "," + maxY + ")(" + minX + "," + minY + ")";
+    }
+    
+    // A rectangle drawn from the given corner on, either way round
+    private static PenStrokes rect(int x, int y, int w, int h, boolean clockwise, int start, double noise, long seed) {
+        int[] corners = clockwise
+            ? new int[] {x, y, x + w, y, x + w, y + h, x, y + h}
+            : new int[] {x, y, x, y + h, x + w, y + h, x + w, y};
+        int[] path = new int[10];
+        for(int i = 0; i < 5; i++) {
+            path[i * 2] = corners[(start + i) % 4 * 2];
+            path[i * 2 + 1] = corners[(start + i) % 4 * 2 + 1];
+        }
+        
+        return PenStrokes.polyline(3, noise, seed, path);
+    }
+    
+    // A regular polygon around (300, 300)
+    private static PenStrokes polygon(int sides, double radius, double rotation, boolean clockwise, double noise, long seed) {
+        int[] corners = new int[(sides + 1) * 2];
+        for(int i = 0; i <= sides; i++) {
+            double angle = rotation + (clockwise ? 1 : -1) * 2 * Math.PI * i / sides;
+            corners[i * 2] = (int)Math.round(300 + radius * Math.cos(angle));
+            corners[i * 2 + 1] = (int)Math.round(300 + radius * Math.sin(angle));
+        }
+        
+        return PenStrokes.polyline(3, noise, seed, corners);
+    }
+    
+    @Test
+    public void recognizesCanonicalLinesAndRectangles() throws InterruptedException {
+        Random random = new Random(1);
+        
+        for(int i = 0; i < 200; i++) {
+            double noise = i % 2;
+            int x = 100 + random.nextInt(100);
+            int y = 100 + random.nextInt(100);
+            int w = 60 + random.nextInt(200);
+            int h = 60 + random.nextInt(200);
+            PenStrokes rect = rect(x, y, w, h, random.nextBoolean(), random.nextInt(4), noise, i);
+            double angle = random.nextDouble() * 2 * Math.PI;
+            PenStrokes line = PenStrokes.polyline(3, noise, i, x, y, x + (int)(w * Math.cos(angle)), y + (int)(w * Math.sin(angle)));
+            
+            assertEquals("rect " + i, rect(rect), recognize(rect));
+            assertEquals("line " + i, line(line), recognize(line));
+        }
+    }
+    
+    // Not round ones: scaled to a square, circles and pentagons come close to
+    // the rectangle templates
+    @Test
+    public void rejectsOtherShapes() throws InterruptedException {
+        Random random = new Random(2);
+        
+        for(int i = 0; i < 200; i++) {
+            double noise = i % 2;
+            int x = 100 + random.nextInt(100);
+            int y = 100 + random.nextInt(100);
+            int w = 60 + random.nextInt(200);
+            int h = 60 + random.nextInt(200);
+            PenStrokes triangle = polygon(3, 50 + random.nextInt(100), random.nextDouble() * Math.PI, random.nextBoolean(), noise, i);
+            PenStrokes l = PenStrokes.polyline(3, noise, i, x, y, x, y + h, x + h, y + h);
+            PenStrokes zigzag = PenStrokes.polyline(3, noise, i, x, y, x + 30, y + h, x + 60, y, x + 90, y + h, x + 120, y);
+            
+            assertEquals("triangle " + i, "-", recognize(triangle));
+            assertEquals("L " + i, "-", recognize(l));
+            assertEquals("zigzag " + i, "-", recognize(zigzag));
+        }
+    }
+    
+    @Test
+    public void abandoningDoesNotChangeTheBestMatch() {
+        // A library large enough for templates to be skipped and scores to
+        // be abandoned, with the templates of interest last
+        TemplateRecognizer.Builder builder = TemplateRecognizer.builder();
+        for(int i = 0; i < 100; i++) {
+            PenStrokes template = PenStrokes.scribble(32, i);
+            builder.template(template.xs, template.ys, (xs, ys) -> null);
+        }
+        builder.template(new int[] {0, 100}, new int[] {0, 0}, (xs, ys) -> null);
+        builder.template(new int[] {0, 100, 100, 0, 0}, new int[] {0, 0, 100, 100, 0}, (xs, ys) -> null);
+        builder.template(new int[] {0, 0, 100, 100, 0}, new int[] {0, 100, 100, 0, 0}, (xs, ys) -> null);
+        builder.template(new int[] {0, 100, -100, 0}, new int[] {0, 170, 170, 0}, (xs, ys) -> null);
+        TemplateRecognizer recognizer = builder.build();
+        Random random = new Random(3);
+        int recognized = 0;
+        
+        for(int i = 0; i < 1000; i++) {
+            double noise = i % 3;
+            int x = 100 + random.nextInt(100);
+            int y = 100 + random.nextInt(100);
+            int w = 60 + random.nextInt(200);
+            int h = 60 + random.nextInt(200);
+            PenStrokes stroke;
+            switch(i % 5) {
+                case 0:
+                    stroke = rect(x, y, w, h, random.nextBoolean(), random.nextInt(4), noise, i);
+                    break;
+                case 1:
+                    stroke = polygon(3 + random.nextInt(3), 50 + random.nextInt(100), random.nextDouble() * Math.PI, random.nextBoolean(), noise, i);
+                    break;
+                case 2:
+                    stroke = polygon(40, 40 + random.nextInt(100), 0, random.nextBoolean(), noise, i);
+                    break;
+                case 3:
+                    stroke = PenStrokes.polyline(3, noise, i, x, y, x + w, y + h);
+                    break;
+                default:
+                    stroke = PenStrokes.scribble(20 + random.nextInt(300), i);
+                    break;
+            }
+            
+            int best = recognizer.recognize(stroke.xs, stroke.ys, stroke.size());
+            assertEquals("stroke " + i, recognizer.recognize(stroke.xs, stroke.ys, stroke.size(), false), best);
+            if(best != -1) {
+                recognized++;
+            }
+        }
+        
+        // Both near misses and matches were compared
+        assertTrue("" + recognized, recognized > 300 && recognized < 900);
+    }
+}